@@ -0,0 +1,69 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The grid operations of DrawView: painting cells and clearing the grid.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class GridBenchmark {
+
+    private static final int SIZE = GameMessages.GRID_SIZE;
+
+    private final GridModel mGrid = new GridModel(SIZE);
+    private int mCell;
+    private short mColor = 1;
+
+    @Benchmark
+    public short setMacroPixel() {
+        mCell = (mCell + 1) % (SIZE * SIZE);
+        mGrid.setMacroPixel(mCell / SIZE, mCell % SIZE, mColor);
+        return mGrid.getColor(mCell / SIZE, mCell % SIZE);
+    }
+
+    /**
+     * Painting along a diagonal stroke, alternating colors so that every cell is reported.
+     */
+    @Benchmark
+    public boolean paint() {
+        mCell = (mCell + 1) % SIZE;
+        if (mCell == 0) {
+            mColor = (short) (3 - mColor);
+        }
+        return mGrid.paint(mCell, mCell, mColor);
+    }
+
+    @Benchmark
+    public GridModel clear() {
+        mGrid.clear();
+        return mGrid;
+    }
+}
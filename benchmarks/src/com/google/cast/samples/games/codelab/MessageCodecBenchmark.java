@@ -0,0 +1,130 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and parsing every message sent by DrawingFragment, as they go over the wire: built
+ * then serialized, and parsed then read the way onGameMessageReceived reads them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class MessageCodecBenchmark {
+
+    private static final List<String> WORDS = Arrays.asList("time", "people", "man", "day",
+            "child", "mister", "government", "woman", "number", "world");
+    private static final String PLAYER_ID = "player12";
+
+    private String mTurnMessage;
+    private String mGuessMessage;
+    private String mGridMessage;
+    private ByteBuffer mGridFrame;
+    private int mCell;
+
+    @Setup
+    public void setUp() throws JSONException, IOException {
+        mTurnMessage = GameMessages.newTurnMessage(3, WORDS, 7).toString();
+        mGuessMessage = GameMessages.newGuessMessage(7).toString();
+        mGridMessage = GameMessages.newGridMessage(5, 11).toString();
+        mGridFrame = WireProtocol.encode(newGameMessageFrame(GameMessages.newGridMessage(5, 11)));
+    }
+
+    @Benchmark
+    public String buildTurnMessage() throws JSONException {
+        return GameMessages.newTurnMessage(3, WORDS, 7).toString();
+    }
+
+    @Benchmark
+    public String buildGridMessage() throws JSONException {
+        mCell = (mCell + 1) % GameMessages.GRID_SIZE;
+        return GameMessages.newGridMessage(mCell, mCell).toString();
+    }
+
+    @Benchmark
+    public String buildClearMessage() throws JSONException {
+        return GameMessages.newClearMessage().toString();
+    }
+
+    @Benchmark
+    public String buildGuessMessage() throws JSONException {
+        return GameMessages.newGuessMessage(7).toString();
+    }
+
+    @Benchmark
+    public String buildArtistMessage() throws JSONException {
+        return GameMessages.newArtistMessage(PLAYER_ID).toString();
+    }
+
+    @Benchmark
+    public String buildPlayerMessage() throws JSONException {
+        return GameMessages.newPlayerMessage(PLAYER_ID).toString();
+    }
+
+    @Benchmark
+    public int parseTurnMessage() throws JSONException {
+        JSONObject message = new JSONObject(mTurnMessage);
+        int turn = message.getInt(GameMessages.MESSAGE_TURN);
+        List<String> words = GameMessages.parseWords(message);
+        return turn + words.size() + message.getInt(GameMessages.MESSAGE_INDEX);
+    }
+
+    @Benchmark
+    public int parseGuessMessage() throws JSONException {
+        JSONObject message = new JSONObject(mGuessMessage);
+        return message.has(GameMessages.MESSAGE_GUESS)
+                ? message.getInt(GameMessages.MESSAGE_GUESS) : -1;
+    }
+
+    @Benchmark
+    public int parseGridMessage() throws JSONException {
+        return new JSONObject(mGridMessage).optInt(GameMessages.MESSAGE_GRID, -1);
+    }
+
+    @Benchmark
+    public ByteBuffer encodeGridFrame() throws JSONException, IOException {
+        return WireProtocol.encode(newGameMessageFrame(GameMessages.newGridMessage(5, 11)));
+    }
+
+    @Benchmark
+    public JSONObject decodeGridFrame() throws IOException {
+        return WireProtocol.decode(mGridFrame.duplicate());
+    }
+
+    private static JSONObject newGameMessageFrame(JSONObject message) throws JSONException {
+        return WireProtocol.newFrame(WireProtocol.TYPE_GAME_MESSAGE)
+                .put(WireProtocol.KEY_MESSAGE, message);
+    }
+}
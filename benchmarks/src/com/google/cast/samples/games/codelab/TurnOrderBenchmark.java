@@ -0,0 +1,100 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computing the turn order, as DrawingFragment#updateTurnIndices does, for games of various
+ * sizes played on a loopback receiver.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class TurnOrderBenchmark {
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Param({"2", "8", "50"})
+    public int playerCount;
+
+    private final List<GameTransport> mTransports = new ArrayList<>();
+    private final PlayerRoster mRoster = new PlayerRoster();
+    private String mLastPlayerId;
+    private int mMatchTurnNumber;
+
+    @Setup
+    public void setUp() {
+        LoopbackReceiver receiver = new LoopbackReceiver(DIRECT_EXECUTOR);
+        for (int i = 0; i < playerCount; i++) {
+            GameTransport transport = receiver.connect();
+            transport.sendPlayerAvailableRequest(null, null);
+            transport.sendPlayerReadyRequest(null, null);
+            mTransports.add(transport);
+        }
+        mTransports.get(0).sendPlayerPlayingRequest(null, null);
+        mLastPlayerId = mTransports.get(playerCount - 1).getLastUsedPlayerId();
+        mRoster.reset(mTransports.get(0));
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (GameTransport transport : mTransports) {
+            transport.dispose();
+        }
+        mTransports.clear();
+    }
+
+    @Benchmark
+    public int reset() {
+        mRoster.reset(mTransports.get(0));
+        return mRoster.getMyTurnIndex();
+    }
+
+    @Benchmark
+    public int playerLeavesAndReturns() {
+        mRoster.onPlayerStateChanged(mLastPlayerId, GameStates.PLAYER_STATE_QUIT);
+        mRoster.onPlayerStateChanged(mLastPlayerId, GameStates.PLAYER_STATE_PLAYING);
+        return mRoster.getPlayingCount();
+    }
+
+    @Benchmark
+    public boolean isMyTurn() {
+        return mRoster.isMyTurn(mMatchTurnNumber++);
+    }
+}
@@ -0,0 +1,80 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picking the words of a turn, from the dictionary of the app (348 words) and larger ones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class WordSamplerBenchmark {
+
+    private static final int MAX_WORDS = 10;
+    private static final long SEED = 42;
+
+    @Param({"348", "1000", "10000"})
+    public int dictionarySize;
+
+    private String[] mAllWords;
+    private WordSampler mWordSampler;
+    private Random mRandom;
+
+    @Setup
+    public void setUp() {
+        mAllWords = new String[dictionarySize];
+        for (int i = 0; i < dictionarySize; i++) {
+            mAllWords[i] = "word" + i;
+        }
+        mWordSampler = new WordSampler(mAllWords, new Random(SEED));
+        mRandom = new Random(SEED);
+    }
+
+    @Benchmark
+    public List<String> sample() {
+        return mWordSampler.sample(MAX_WORDS);
+    }
+
+    /**
+     * The previous implementation of DrawingFragment#getRandomWordSubset, as a baseline.
+     */
+    @Benchmark
+    public List<String> shuffleDictionary() {
+        List<String> result = new ArrayList<>();
+        Collections.addAll(result, mAllWords);
+        Collections.shuffle(result, mRandom);
+        return result.subList(0, MAX_WORDS);
+    }
+}
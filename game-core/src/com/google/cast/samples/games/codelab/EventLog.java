@@ -0,0 +1,287 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records fixed-size binary events into a preallocated ring buffer, keeping the most recent ones.
+ * An event is a type and three int arguments, stamped with {@link System#nanoTime}. Logging an
+ * event does not build strings, allocate or lock; events are only formatted when dumped, with the
+ * format given when their type was defined.
+ *
+ * <p>Events may be logged from any thread. A dump taken while events are logged skips the events
+ * being overwritten.
+ *
+ * <p>The log can be written in a compact binary format with {@link #writeTo}, and read back with
+ * {@link EventLogDecoder}. The format is, with varints as in protocol buffers:
+ * <pre>
+ * int     MAGIC
+ * byte    FORMAT_VERSION
+ * long    wall clock time of the dump, in milliseconds since the epoch
+ * long    System.nanoTime() of the dump
+ * varint  type count, then for each type: UTF name, UTF format
+ * varint  event count
+ * long    time of the first event, in System.nanoTime(), only if there are events
+ * events  each a signed varint time delta in nanoseconds from the previous event, an unsigned
+ *         varint type and three signed varint arguments
+ * </pre>
+ */
+public class EventLog {
+
+    public static final int MAX_TYPES = 256;
+
+    static final int MAGIC = 0x474d454c;
+    static final int FORMAT_VERSION = 1;
+
+    /**
+     * Receives the events of the log, oldest first.
+     */
+    public interface Visitor {
+
+        /**
+         * @param timeNanos the {@link System#nanoTime} at which the event was logged.
+         */
+        void onEvent(long timeNanos, int type, int arg0, int arg1, int arg2);
+    }
+
+    private final int mMask;
+    private final long[] mTimes;
+    private final int[] mTypes;
+    private final int[] mArgs;
+    // The sequence number + 1 of the event held by each slot, or 0 while it is being written
+    private final AtomicLongArray mSequences;
+    private final AtomicLong mNextSequence = new AtomicLong();
+
+    private final String[] mTypeNames = new String[MAX_TYPES];
+    private final String[] mTypeFormats = new String[MAX_TYPES];
+    private int mTypeCount = 0;
+
+    /**
+     * @param capacity the number of events kept, rounded up to a power of two.
+     */
+    public EventLog(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mMask = size - 1;
+        mTimes = new long[size];
+        mTypes = new int[size];
+        mArgs = new int[size * 3];
+        mSequences = new AtomicLongArray(size);
+    }
+
+    /**
+     * Defines a type of event.
+     *
+     * @param name   a short name for the type.
+     * @param format a {@link String#format} pattern for the three int arguments of the events, for
+     *               example {@code "x=%d y=%d"}. Arguments the pattern does not use are ignored.
+     * @return the type to log events with.
+     */
+    public synchronized int defineType(String name, String format) {
+        if (mTypeCount == MAX_TYPES) {
+            throw new IllegalStateException("Too many event types");
+        }
+        mTypeNames[mTypeCount] = name;
+        mTypeFormats[mTypeCount] = format;
+        return mTypeCount++;
+    }
+
+    public synchronized String getTypeName(int type) {
+        return mTypeNames[type];
+    }
+
+    public synchronized String getTypeFormat(int type) {
+        return mTypeFormats[type];
+    }
+
+    public synchronized int getTypeCount() {
+        return mTypeCount;
+    }
+
+    public int getCapacity() {
+        return mMask + 1;
+    }
+
+    /**
+     * Returns the number of events logged so far, including those overwritten since.
+     */
+    public long getEventCount() {
+        return mNextSequence.get();
+    }
+
+    public void log(int type) {
+        log(type, 0, 0, 0);
+    }
+
+    public void log(int type, int arg0) {
+        log(type, arg0, 0, 0);
+    }
+
+    public void log(int type, int arg0, int arg1) {
+        log(type, arg0, arg1, 0);
+    }
+
+    public void log(int type, int arg0, int arg1, int arg2) {
+        long sequence = mNextSequence.getAndIncrement();
+        int slot = (int) sequence & mMask;
+        mSequences.set(slot, 0);
+        mTimes[slot] = System.nanoTime();
+        mTypes[slot] = type;
+        mArgs[slot * 3] = arg0;
+        mArgs[slot * 3 + 1] = arg1;
+        mArgs[slot * 3 + 2] = arg2;
+        mSequences.lazySet(slot, sequence + 1);
+    }
+
+    /**
+     * Passes the events still in the log to the visitor, oldest first.
+     *
+     * @return the number of events visited.
+     */
+    public int forEach(Visitor visitor) {
+        long end = mNextSequence.get();
+        long start = Math.max(0, end - getCapacity());
+        int visited = 0;
+        for (long sequence = start; sequence < end; sequence++) {
+            int slot = (int) sequence & mMask;
+            if (mSequences.get(slot) != sequence + 1) {
+                continue;
+            }
+            long timeNanos = mTimes[slot];
+            int type = mTypes[slot];
+            int arg0 = mArgs[slot * 3];
+            int arg1 = mArgs[slot * 3 + 1];
+            int arg2 = mArgs[slot * 3 + 2];
+            if (mSequences.get(slot) != sequence + 1) {
+                // Overwritten while it was read
+                continue;
+            }
+            visitor.onEvent(timeNanos, type, arg0, arg1, arg2);
+            visited++;
+        }
+        return visited;
+    }
+
+    /**
+     * Returns the events still in the log, one per line, with their time in milliseconds
+     * relative to the dump.
+     */
+    public String dump() {
+        final long nowNanos = System.nanoTime();
+        final StringBuilder builder = new StringBuilder();
+        forEach(new Visitor() {
+            @Override
+            public void onEvent(long timeNanos, int type, int arg0, int arg1, int arg2) {
+                appendEvent(builder, (timeNanos - nowNanos) / 1e6, getTypeName(type),
+                        getTypeFormat(type), arg0, arg1, arg2);
+            }
+        });
+        return builder.toString();
+    }
+
+    /**
+     * Writes the events still in the log, with their types, in the binary format described above.
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        final long nowNanos = System.nanoTime();
+        final ByteArrayOutputStream events = new ByteArrayOutputStream();
+        final DataOutputStream eventOutput = new DataOutputStream(events);
+        final long[] previousNanos = new long[1];
+        final IOException[] error = new IOException[1];
+        int count = forEach(new Visitor() {
+            @Override
+            public void onEvent(long timeNanos, int type, int arg0, int arg1, int arg2) {
+                try {
+                    if (eventOutput.size() == 0) {
+                        eventOutput.writeLong(timeNanos);
+                        previousNanos[0] = timeNanos;
+                    }
+                    writeSignedVarint(eventOutput, timeNanos - previousNanos[0]);
+                    writeVarint(eventOutput, type);
+                    writeSignedVarint(eventOutput, arg0);
+                    writeSignedVarint(eventOutput, arg1);
+                    writeSignedVarint(eventOutput, arg2);
+                    previousNanos[0] = timeNanos;
+                } catch (IOException e) {
+                    error[0] = e;
+                }
+            }
+        });
+        if (error[0] != null) {
+            throw error[0];
+        }
+
+        DataOutputStream dataOutput = new DataOutputStream(output);
+        dataOutput.writeInt(MAGIC);
+        dataOutput.writeByte(FORMAT_VERSION);
+        dataOutput.writeLong(System.currentTimeMillis());
+        dataOutput.writeLong(nowNanos);
+        int typeCount = getTypeCount();
+        writeVarint(dataOutput, typeCount);
+        for (int type = 0; type < typeCount; type++) {
+            dataOutput.writeUTF(getTypeName(type));
+            dataOutput.writeUTF(getTypeFormat(type));
+        }
+        writeVarint(dataOutput, count);
+        events.writeTo(dataOutput);
+        dataOutput.flush();
+    }
+
+    static void writeVarint(DataOutput output, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            output.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    static void writeSignedVarint(DataOutput output, long value) throws IOException {
+        writeVarint(output, (value << 1) ^ (value >> 63));
+    }
+
+    static long readVarint(DataInput input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static long readSignedVarint(DataInput input) throws IOException {
+        long value = readVarint(input);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Formats one event as a line of a dump.
+     */
+    static void appendEvent(StringBuilder builder, double timeMillis, String name, String format,
+            int arg0, int arg1, int arg2) {
+        builder.append(String.format(Locale.US, "%10.3fms %-20s ", timeMillis, name))
+                .append(String.format(Locale.US, format, arg0, arg1, arg2))
+                .append('\n');
+    }
+}
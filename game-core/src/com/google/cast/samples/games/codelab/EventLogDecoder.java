@@ -0,0 +1,101 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Turns an {@link EventLog} written with {@link EventLog#writeTo}, such as a flight recorder dump
+ * pulled from a device, back into a timeline. Each line has the wall clock time of the event, its
+ * time in milliseconds relative to the dump, its type and its formatted arguments.
+ *
+ * <p>Usage: {@code EventLogDecoder <dump file>...}
+ */
+public class EventLogDecoder {
+
+    /**
+     * Decodes a dump into a timeline.
+     *
+     * @throws IOException if the dump cannot be read or is not an event log.
+     */
+    public static String decode(InputStream input) throws IOException {
+        DataInputStream dataInput = new DataInputStream(input);
+        if (dataInput.readInt() != EventLog.MAGIC) {
+            throw new IOException("Not an event log");
+        }
+        int version = dataInput.readUnsignedByte();
+        if (version != EventLog.FORMAT_VERSION) {
+            throw new IOException("Unsupported event log version " + version);
+        }
+        long dumpMillis = dataInput.readLong();
+        long dumpNanos = dataInput.readLong();
+
+        int typeCount = (int) EventLog.readVarint(dataInput);
+        String[] typeNames = new String[typeCount];
+        String[] typeFormats = new String[typeCount];
+        for (int type = 0; type < typeCount; type++) {
+            typeNames[type] = dataInput.readUTF();
+            typeFormats[type] = dataInput.readUTF();
+        }
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("HH:mm:ss.SSS", Locale.US);
+        StringBuilder builder = new StringBuilder();
+        long count = EventLog.readVarint(dataInput);
+        builder.append(String.format(Locale.US, "Dumped at %tF %<tT, %d events\n",
+                new Date(dumpMillis), count));
+        long timeNanos = (count > 0) ? dataInput.readLong() : 0;
+        for (long event = 0; event < count; event++) {
+            timeNanos += EventLog.readSignedVarint(dataInput);
+            int type = (int) EventLog.readVarint(dataInput);
+            int arg0 = (int) EventLog.readSignedVarint(dataInput);
+            int arg1 = (int) EventLog.readSignedVarint(dataInput);
+            int arg2 = (int) EventLog.readSignedVarint(dataInput);
+
+            double relativeMillis = (timeNanos - dumpNanos) / 1e6;
+            builder.append(dateFormat.format(new Date(dumpMillis + (long) relativeMillis)))
+                    .append(' ');
+            if (type < typeCount) {
+                EventLog.appendEvent(builder, relativeMillis, typeNames[type], typeFormats[type],
+                        arg0, arg1, arg2);
+            } else {
+                EventLog.appendEvent(builder, relativeMillis, "type" + type, "%d %d %d",
+                        arg0, arg1, arg2);
+            }
+        }
+        return builder.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: EventLogDecoder <dump file>...");
+            System.exit(1);
+        }
+        for (String fileName : args) {
+            InputStream input = new BufferedInputStream(new FileInputStream(fileName));
+            try {
+                System.out.println(fileName);
+                System.out.print(decode(input));
+            } finally {
+                input.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The game messages exchanged by the senders through the receiver, see receiver/game.js. Every
+ * message is a JSON object identified by the key it holds.
+ */
+public final class GameMessages {
+
+    // Number of cells on each side of the drawing grid
+    public static final int GRID_SIZE = 20;
+
+    // A new turn: turn number, comma separated words and index of the word to draw
+    public static final String MESSAGE_TURN = "turn";
+    public static final String MESSAGE_WORDS = "words";
+    public static final String MESSAGE_INDEX = "index";
+    // The index of the word guessed by a player, or -1 if time ran out
+    public static final String MESSAGE_GUESS = "guess";
+    // The player drawing this turn
+    public static final String MESSAGE_ARTIST = "artist";
+    // Clears the drawing
+    public static final String MESSAGE_CLEAR = "clear";
+    // A guesser asking for the words of the current turn
+    public static final String MESSAGE_PLAYER = "player";
+    // A cell of the grid being drawn
+    public static final String MESSAGE_GRID = "grid";
+
+    private static final String WORD_SEPARATOR = ",";
+    private static final String WORD_SEPARATOR_PATTERN = "\\s*,\\s*";
+
+    private GameMessages() {
+    }
+
+    public static JSONObject newTurnMessage(int matchTurnNumber, List<String> words,
+            int wordIndex) throws JSONException {
+        JSONObject message = new JSONObject();
+        message.put(MESSAGE_TURN, matchTurnNumber);
+        message.put(MESSAGE_WORDS, joinWords(words));
+        message.put(MESSAGE_INDEX, wordIndex);
+        return message;
+    }
+
+    public static JSONObject newGridMessage(int gridX, int gridY) throws JSONException {
+        return new JSONObject().put(MESSAGE_GRID, getGridCell(gridX, gridY));
+    }
+
+    public static JSONObject newClearMessage() throws JSONException {
+        return new JSONObject().put(MESSAGE_CLEAR, 1);
+    }
+
+    public static JSONObject newGuessMessage(int wordIndex) throws JSONException {
+        return new JSONObject().put(MESSAGE_GUESS, wordIndex);
+    }
+
+    public static JSONObject newArtistMessage(String playerId) throws JSONException {
+        return new JSONObject().put(MESSAGE_ARTIST, playerId);
+    }
+
+    public static JSONObject newPlayerMessage(String playerId) throws JSONException {
+        return new JSONObject().put(MESSAGE_PLAYER, playerId);
+    }
+
+    /**
+     * Returns the value of a grid message for a cell. Cells are numbered from 1, row by row, like
+     * the table cells of the receiver page.
+     */
+    public static int getGridCell(int gridX, int gridY) {
+        return (gridX + 1) + gridY * GRID_SIZE;
+    }
+
+    /**
+     * Returns the words of a turn message.
+     */
+    public static List<String> parseWords(JSONObject message) throws JSONException {
+        return Arrays.asList(message.getString(MESSAGE_WORDS).split(WORD_SEPARATOR_PATTERN));
+    }
+
+    private static String joinWords(List<String> words) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < words.size(); i++) {
+            if (i > 0) {
+                builder.append(WORD_SEPARATOR);
+            }
+            builder.append(words.get(i));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,42 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+/**
+ * Receives the changes to the game state as individual player, lobby and gameplay events. When
+ * several things change at once, player events are delivered first, followed by lobby and
+ * gameplay state changes.
+ */
+public interface GameStateListener {
+
+    /**
+     * A player entered an active state (anything but unknown, quit or dropped).
+     */
+    void onPlayerJoined(String playerId);
+
+    /**
+     * A player quit, dropped or was removed from the game.
+     */
+    void onPlayerLeft(String playerId);
+
+    /**
+     * The state of a player changed. Also delivered for joins and leaves, between
+     * {@link #onPlayerJoined} and {@link #onPlayerLeft}.
+     */
+    void onPlayerStateChanged(String playerId, int newPlayerState, int oldPlayerState);
+
+    void onLobbyStateChanged(int newLobbyState, int oldLobbyState);
+
+    void onGameplayStateChanged(int newGameplayState, int oldGameplayState);
+}
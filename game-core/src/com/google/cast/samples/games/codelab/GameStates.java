@@ -0,0 +1,75 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+/**
+ * The player, lobby and gameplay states shared by the senders and the receiver. The values are
+ * the ones used by the Cast Game Manager, so that they can be sent over the wire unchanged.
+ */
+public final class GameStates {
+
+    // Player states
+    public static final int PLAYER_STATE_UNKNOWN = 0;
+    public static final int PLAYER_STATE_DROPPED = 1;
+    public static final int PLAYER_STATE_QUIT = 2;
+    public static final int PLAYER_STATE_AVAILABLE = 3;
+    public static final int PLAYER_STATE_READY = 4;
+    public static final int PLAYER_STATE_IDLE = 5;
+    public static final int PLAYER_STATE_PLAYING = 6;
+
+    // Lobby states
+    public static final int LOBBY_STATE_UNKNOWN = 0;
+    public static final int LOBBY_STATE_OPEN = 1;
+    public static final int LOBBY_STATE_CLOSED = 2;
+
+    // Gameplay states
+    public static final int GAMEPLAY_STATE_UNKNOWN = 0;
+    public static final int GAMEPLAY_STATE_LOADING = 1;
+    public static final int GAMEPLAY_STATE_RUNNING = 2;
+    public static final int GAMEPLAY_STATE_PAUSED = 3;
+    public static final int GAMEPLAY_STATE_SHOWING_INFO_SCREEN = 4;
+
+    private GameStates() {
+    }
+
+    /**
+     * Returns true if the player state is one where the player takes part in the game.
+     */
+    public static boolean isActive(int playerState) {
+        return playerState != PLAYER_STATE_UNKNOWN
+                && playerState != PLAYER_STATE_QUIT
+                && playerState != PLAYER_STATE_DROPPED;
+    }
+
+    /**
+     * Reports a player state change to the listener, wrapped in
+     * {@link GameStateListener#onPlayerJoined} and {@link GameStateListener#onPlayerLeft} when the
+     * player enters or leaves the game. Does nothing if the state did not change.
+     */
+    public static void dispatchPlayerStateChanged(GameStateListener listener, String playerId,
+            int newPlayerState, int oldPlayerState) {
+        if (newPlayerState == oldPlayerState) {
+            return;
+        }
+        boolean wasActive = isActive(oldPlayerState);
+        boolean isActive = isActive(newPlayerState);
+        if (isActive && !wasActive) {
+            listener.onPlayerJoined(playerId);
+        }
+        listener.onPlayerStateChanged(playerId, newPlayerState, oldPlayerState);
+        if (wasActive && !isActive) {
+            listener.onPlayerLeft(playerId);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import org.json.JSONObject;
+
+import java.util.List;
+
+/**
+ * The connection of one sender to the game running on the receiver: player state requests, game
+ * messages in both directions and state change callbacks. States are the GameStates constants.
+ *
+ * <p>The Cast implementation wraps a GameManagerClient and delivers callbacks on the main thread.
+ * {@link LoopbackGameTransport} runs the receiver logic in process, so that the game can be
+ * driven without a Cast device.
+ */
+public interface GameTransport {
+
+    /**
+     * Receives the state changes and the game messages sent by the receiver.
+     */
+    interface Listener extends GameStateListener {
+
+        /**
+         * A game message was received.
+         *
+         * @param playerId the ID of the player the message is about.
+         * @param message  the message.
+         */
+        void onGameMessageReceived(String playerId, JSONObject message);
+    }
+
+    /**
+     * Receives the result of a player state request.
+     */
+    interface RequestCallback {
+
+        /**
+         * The request succeeded.
+         *
+         * @param playerId    the ID of the local player, which may have been created by the
+         *                    request.
+         * @param playerState the state of the player after the request.
+         */
+        void onRequestSucceeded(String playerId, int playerState);
+
+        void onRequestFailed(String errorMessage);
+    }
+
+    /**
+     * Sets the listener for state changes and game messages, replacing the previous one. May be
+     * null.
+     */
+    void setListener(Listener listener);
+
+    /**
+     * Asks for the local player to become available, creating the player if needed.
+     *
+     * @param extraMessageData data for the receiver, may be null.
+     * @param callback         receives the result, may be null.
+     */
+    void sendPlayerAvailableRequest(JSONObject extraMessageData, RequestCallback callback);
+
+    /**
+     * Asks for the local player to become ready. The receiver keeps the "name" of the player
+     * from the extra data.
+     */
+    void sendPlayerReadyRequest(JSONObject extraMessageData, RequestCallback callback);
+
+    /**
+     * Asks for the local player to start playing. The receiver starts the game for all the ready
+     * players.
+     */
+    void sendPlayerPlayingRequest(JSONObject extraMessageData, RequestCallback callback);
+
+    /**
+     * Sends a game message from the local player to the receiver.
+     */
+    void sendGameMessage(JSONObject message);
+
+    /**
+     * Returns the ID of the local player, or null if no request has been made yet.
+     */
+    String getLastUsedPlayerId();
+
+    /**
+     * Returns the state of a player, or PLAYER_STATE_UNKNOWN if there is no such player.
+     */
+    int getPlayerState(String playerId);
+
+    /**
+     * Returns the IDs of all the players known to the receiver, in any state.
+     */
+    List<String> getPlayerIds();
+
+    int getLobbyState();
+
+    int getGameplayState();
+
+    /**
+     * Returns true until the transport is disposed or the connection is lost.
+     */
+    boolean isConnected();
+
+    /**
+     * Closes the connection. The local player leaves the game.
+     */
+    void dispose();
+}
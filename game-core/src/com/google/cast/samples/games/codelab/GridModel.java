@@ -0,0 +1,87 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import java.util.Arrays;
+
+/**
+ * The colors of the square grid of macro pixels drawn by the artist, and the last cell painted by
+ * a stroke, so that only actual changes are reported. Cells are stored in a single array, column
+ * by column, so that clearing the grid is a single fill.
+ */
+public class GridModel {
+
+    private final int mSize;
+    private final short[] mColors;
+    private int mLastGridX = -1;
+    private int mLastGridY = -1;
+
+    public GridModel(int size) {
+        mSize = size;
+        mColors = new short[size * size];
+    }
+
+    public int getSize() {
+        return mSize;
+    }
+
+    /**
+     * Returns true if the cell is inside the grid.
+     */
+    public boolean contains(int gridX, int gridY) {
+        return gridX >= 0 && gridY >= 0 && gridX < mSize && gridY < mSize;
+    }
+
+    public short getColor(int gridX, int gridY) {
+        return mColors[gridX * mSize + gridY];
+    }
+
+    /**
+     * Paints a cell with the given color.
+     */
+    public void setMacroPixel(int gridX, int gridY, short colorIndex) {
+        mColors[gridX * mSize + gridY] = colorIndex;
+    }
+
+    /**
+     * Paints a cell as part of a stroke.
+     *
+     * @return true if the stroke moved to another cell and changed its color, in which case the
+     * change should be reported.
+     */
+    public boolean paint(int gridX, int gridY, short colorIndex) {
+        int cell = gridX * mSize + gridY;
+        short oldColor = mColors[cell];
+        mColors[cell] = colorIndex;
+
+        // Don't double-draw or send messages where the color does not change
+        boolean notSameSpot = (mLastGridX != gridX) || (mLastGridY != gridY);
+        boolean notSameColor = oldColor != colorIndex;
+        if (notSameSpot && notSameColor) {
+            mLastGridX = gridX;
+            mLastGridY = gridY;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Clears paint from all cells.
+     */
+    public void clear() {
+        mLastGridX = -1;
+        mLastGridY = -1;
+        Arrays.fill(mColors, (short) 0);
+    }
+}
@@ -0,0 +1,172 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations in nanoseconds with fixed, log-linear buckets: every power of two is
+ * split into 8 buckets, so values are kept within 12.5% of their real value. Recording does not
+ * allocate or lock, and may be done from any thread. Reads taken while other threads record are
+ * not a consistent snapshot, but each value is at most a few records behind.
+ */
+public class LatencyHistogram {
+
+    // Sub-buckets per power of two, as a power of two
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final String mName;
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSumNanos = new AtomicLong();
+    private final AtomicLong mMinNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong mMaxNanos = new AtomicLong();
+
+    public LatencyHistogram(String name) {
+        mName = name;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Records one duration. Negative durations are recorded as 0.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        mCounts.incrementAndGet(getBucket(nanos));
+        mSumNanos.addAndGet(nanos);
+        long min;
+        while (nanos < (min = mMinNanos.get()) && !mMinNanos.compareAndSet(min, nanos)) {
+            // Lost the race to another thread, try again with its value
+        }
+        long max;
+        while (nanos > (max = mMaxNanos.get()) && !mMaxNanos.compareAndSet(max, nanos)) {
+            // Lost the race to another thread, try again with its value
+        }
+        mCount.incrementAndGet();
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    public long getMaxNanos() {
+        return mMaxNanos.get();
+    }
+
+    public long getMinNanos() {
+        return (mCount.get() == 0) ? 0 : mMinNanos.get();
+    }
+
+    public long getMeanNanos() {
+        long count = mCount.get();
+        return (count == 0) ? 0 : mSumNanos.get() / count;
+    }
+
+    /**
+     * Returns an upper bound of the given percentile, or 0 if nothing was recorded.
+     *
+     * @param percentile between 0 and 100.
+     */
+    public long getPercentileNanos(double percentile) {
+        long count = mCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long max = mMaxNanos.get();
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += mCounts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(getBucketUpperBound(bucket), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Forgets everything recorded so far. Records made at the same time may be partly kept.
+     */
+    public void reset() {
+        mCount.set(0);
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            mCounts.set(bucket, 0);
+        }
+        mSumNanos.set(0);
+        mMinNanos.set(Long.MAX_VALUE);
+        mMaxNanos.set(0);
+    }
+
+    /**
+     * Returns the summary as JSON, with durations in nanoseconds.
+     */
+    public JSONObject toJson() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("count", getCount());
+        json.put("minNanos", getMinNanos());
+        json.put("meanNanos", getMeanNanos());
+        json.put("p50Nanos", getPercentileNanos(50));
+        json.put("p90Nanos", getPercentileNanos(90));
+        json.put("p99Nanos", getPercentileNanos(99));
+        json.put("maxNanos", getMaxNanos());
+        return json;
+    }
+
+    /**
+     * Returns a one line summary in milliseconds.
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "%s: count=%d min=%.2fms mean=%.2fms p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms",
+                mName, getCount(), toMillis(getMinNanos()), toMillis(getMeanNanos()),
+                toMillis(getPercentileNanos(50)), toMillis(getPercentileNanos(90)),
+                toMillis(getPercentileNanos(99)), toMillis(getMaxNanos()));
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static int getBucket(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long getBucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        int subBucket = bucket % SUB_BUCKET_COUNT;
+        long lowerBound = (long) (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
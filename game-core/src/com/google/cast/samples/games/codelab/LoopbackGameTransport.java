@@ -0,0 +1,160 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import org.json.JSONObject;
+
+import java.util.List;
+
+/**
+ * A {@link GameTransport} to a {@link LoopbackReceiver} in the same process. Created with
+ * {@link LoopbackReceiver#connect}.
+ */
+public class LoopbackGameTransport implements GameTransport {
+
+    private final LoopbackReceiver mReceiver;
+
+    // Set by the receiver on the first request, guarded by the receiver lock
+    private String mPlayerId;
+    private volatile Listener mListener;
+    private volatile boolean mConnected = true;
+
+    LoopbackGameTransport(LoopbackReceiver receiver) {
+        mReceiver = receiver;
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    @Override
+    public void sendPlayerAvailableRequest(JSONObject extraMessageData,
+            RequestCallback callback) {
+        sendPlayerRequest(GameStates.PLAYER_STATE_AVAILABLE, extraMessageData, callback);
+    }
+
+    @Override
+    public void sendPlayerReadyRequest(JSONObject extraMessageData, RequestCallback callback) {
+        sendPlayerRequest(GameStates.PLAYER_STATE_READY, extraMessageData, callback);
+    }
+
+    @Override
+    public void sendPlayerPlayingRequest(JSONObject extraMessageData, RequestCallback callback) {
+        sendPlayerRequest(GameStates.PLAYER_STATE_PLAYING, extraMessageData, callback);
+    }
+
+    @Override
+    public void sendGameMessage(JSONObject message) {
+        if (mConnected) {
+            mReceiver.sendGameMessage(this, message);
+        }
+    }
+
+    @Override
+    public String getLastUsedPlayerId() {
+        synchronized (mReceiver.getLock()) {
+            return mPlayerId;
+        }
+    }
+
+    @Override
+    public int getPlayerState(String playerId) {
+        synchronized (mReceiver.getLock()) {
+            return mReceiver.getGame().getPlayerState(playerId);
+        }
+    }
+
+    @Override
+    public List<String> getPlayerIds() {
+        synchronized (mReceiver.getLock()) {
+            return mReceiver.getGame().getPlayerIds();
+        }
+    }
+
+    @Override
+    public int getLobbyState() {
+        synchronized (mReceiver.getLock()) {
+            return mReceiver.getGame().getLobbyState();
+        }
+    }
+
+    @Override
+    public int getGameplayState() {
+        synchronized (mReceiver.getLock()) {
+            return mReceiver.getGame().getGameplayState();
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return mConnected;
+    }
+
+    @Override
+    public void dispose() {
+        if (mConnected) {
+            mConnected = false;
+            mReceiver.disconnect(this);
+        }
+    }
+
+    String getPlayerId() {
+        return mPlayerId;
+    }
+
+    void setPlayerId(String playerId) {
+        mPlayerId = playerId;
+    }
+
+    void onPlayerStateChanged(String playerId, int newPlayerState, int oldPlayerState) {
+        Listener listener = mListener;
+        if (listener != null) {
+            GameStates.dispatchPlayerStateChanged(listener, playerId, newPlayerState,
+                    oldPlayerState);
+        }
+    }
+
+    void onLobbyStateChanged(int newLobbyState, int oldLobbyState) {
+        Listener listener = mListener;
+        if (listener != null) {
+            listener.onLobbyStateChanged(newLobbyState, oldLobbyState);
+        }
+    }
+
+    void onGameplayStateChanged(int newGameplayState, int oldGameplayState) {
+        Listener listener = mListener;
+        if (listener != null) {
+            listener.onGameplayStateChanged(newGameplayState, oldGameplayState);
+        }
+    }
+
+    void onGameMessageReceived(String playerId, JSONObject message) {
+        Listener listener = mListener;
+        if (listener != null) {
+            listener.onGameMessageReceived(playerId, message);
+        }
+    }
+
+    private void sendPlayerRequest(int playerState, JSONObject extraMessageData,
+            RequestCallback callback) {
+        if (!mConnected) {
+            if (callback != null) {
+                callback.onRequestFailed("The transport is disposed");
+            }
+            return;
+        }
+        mReceiver.requestPlayerState(this, playerState, extraMessageData, callback);
+    }
+}
@@ -0,0 +1,203 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * An in-process receiver running a {@link ReceiverGame}, which any number of senders join with
+ * {@link #connect}. Used to run the game, load tests and benchmarks without a Cast device.
+ *
+ * <p>Thread safe. Callbacks are delivered one at a time, in the order the receiver produced them,
+ * on the executor given at construction and never while the receiver is locked, so listeners may
+ * call back into their transport.
+ */
+public class LoopbackReceiver {
+
+    private final Object mLock = new Object();
+    private final ReceiverGame mGame;
+    private final Executor mCallbackExecutor;
+    private final List<LoopbackGameTransport> mTransports = new CopyOnWriteArrayList<>();
+
+    // Callbacks produced by the game, guarded by mLock
+    private final ArrayDeque<Runnable> mEvents = new ArrayDeque<>();
+    private boolean mDelivering = false;
+
+    private final Runnable mDeliverEvents = new Runnable() {
+        @Override
+        public void run() {
+            while (true) {
+                Runnable event;
+                synchronized (mLock) {
+                    event = mEvents.pollFirst();
+                    if (event == null) {
+                        mDelivering = false;
+                        return;
+                    }
+                }
+                event.run();
+            }
+        }
+    };
+
+    /**
+     * @param callbackExecutor runs the callbacks of all the transports of this receiver.
+     */
+    public LoopbackReceiver(Executor callbackExecutor) {
+        mCallbackExecutor = callbackExecutor;
+        mGame = new ReceiverGame(new GameOutput());
+        mGame.start();
+    }
+
+    /**
+     * Connects a new sender. Its player is created by its first player state request.
+     */
+    public LoopbackGameTransport connect() {
+        LoopbackGameTransport transport = new LoopbackGameTransport(this);
+        mTransports.add(transport);
+        return transport;
+    }
+
+    /**
+     * Returns the game, for inspection. Must only be used while holding {@link #getLock}.
+     */
+    public ReceiverGame getGame() {
+        return mGame;
+    }
+
+    public Object getLock() {
+        return mLock;
+    }
+
+    void requestPlayerState(final LoopbackGameTransport transport, int playerState,
+            JSONObject extraMessageData, final GameTransport.RequestCallback callback) {
+        synchronized (mLock) {
+            if (transport.getPlayerId() == null) {
+                transport.setPlayerId(mGame.newPlayerId());
+            }
+            final String playerId = transport.getPlayerId();
+            final String error = mGame.requestPlayerState(playerId, playerState,
+                    extraMessageData);
+            final int newPlayerState = mGame.getPlayerState(playerId);
+            if (callback != null) {
+                mEvents.addLast(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (error == null) {
+                            callback.onRequestSucceeded(playerId, newPlayerState);
+                        } else {
+                            callback.onRequestFailed(error);
+                        }
+                    }
+                });
+            }
+        }
+        deliverEvents();
+    }
+
+    void sendGameMessage(LoopbackGameTransport transport, JSONObject message) {
+        synchronized (mLock) {
+            if (transport.getPlayerId() == null) {
+                return;
+            }
+            mGame.onGameMessage(transport.getPlayerId(), message);
+        }
+        deliverEvents();
+    }
+
+    void disconnect(LoopbackGameTransport transport) {
+        mTransports.remove(transport);
+        synchronized (mLock) {
+            if (transport.getPlayerId() != null) {
+                mGame.requestPlayerState(transport.getPlayerId(), GameStates.PLAYER_STATE_QUIT,
+                        null);
+            }
+        }
+        deliverEvents();
+    }
+
+    private void deliverEvents() {
+        synchronized (mLock) {
+            if (mDelivering || mEvents.isEmpty()) {
+                return;
+            }
+            mDelivering = true;
+        }
+        mCallbackExecutor.execute(mDeliverEvents);
+    }
+
+    /**
+     * Queues what the game sends for delivery to the transports. Runs with mLock held.
+     */
+    private class GameOutput implements ReceiverGame.Output {
+
+        @Override
+        public void onPlayerStateChanged(final String playerId, final int newPlayerState,
+                final int oldPlayerState) {
+            for (final LoopbackGameTransport transport : mTransports) {
+                mEvents.addLast(new Runnable() {
+                    @Override
+                    public void run() {
+                        transport.onPlayerStateChanged(playerId, newPlayerState, oldPlayerState);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void onLobbyStateChanged(final int newLobbyState, final int oldLobbyState) {
+            for (final LoopbackGameTransport transport : mTransports) {
+                mEvents.addLast(new Runnable() {
+                    @Override
+                    public void run() {
+                        transport.onLobbyStateChanged(newLobbyState, oldLobbyState);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void onGameplayStateChanged(final int newGameplayState,
+                final int oldGameplayState) {
+            for (final LoopbackGameTransport transport : mTransports) {
+                mEvents.addLast(new Runnable() {
+                    @Override
+                    public void run() {
+                        transport.onGameplayStateChanged(newGameplayState, oldGameplayState);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void sendGameMessage(String toPlayerId, final String fromPlayerId,
+                final JSONObject message) {
+            for (final LoopbackGameTransport transport : mTransports) {
+                if (toPlayerId.equals(transport.getPlayerId())) {
+                    mEvents.addLast(new Runnable() {
+                        @Override
+                        public void run() {
+                            transport.onGameMessageReceived(fromPlayerId, message);
+                        }
+                    });
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A set of named counters and latency histograms. Metrics are looked up once, typically into
+ * static fields, and then updated directly: counters are AtomicLongs and histograms are
+ * {@link LatencyHistogram}s, so that updating a metric never locks or allocates.
+ */
+public class MetricsRegistry {
+
+    private final ConcurrentMap<String, AtomicLong> mCounters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> mHistograms = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the counter with the given name, creating it if needed.
+     */
+    public AtomicLong getCounter(String name) {
+        AtomicLong counter = mCounters.get(name);
+        if (counter == null) {
+            AtomicLong newCounter = new AtomicLong();
+            counter = mCounters.putIfAbsent(name, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Returns the histogram with the given name, creating it if needed.
+     */
+    public LatencyHistogram getHistogram(String name) {
+        LatencyHistogram histogram = mHistograms.get(name);
+        if (histogram == null) {
+            LatencyHistogram newHistogram = new LatencyHistogram(name);
+            histogram = mHistograms.putIfAbsent(name, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Zeroes every metric, keeping them registered.
+     */
+    public void reset() {
+        for (AtomicLong counter : mCounters.values()) {
+            counter.set(0);
+        }
+        for (LatencyHistogram histogram : mHistograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Returns every metric as JSON, with a "counters" and a "histograms" object keyed by name.
+     */
+    public JSONObject toJson() throws JSONException {
+        JSONObject counters = new JSONObject();
+        for (Map.Entry<String, AtomicLong> entry : mCounters.entrySet()) {
+            counters.put(entry.getKey(), entry.getValue().get());
+        }
+        JSONObject histograms = new JSONObject();
+        for (Map.Entry<String, LatencyHistogram> entry : mHistograms.entrySet()) {
+            histograms.put(entry.getKey(), entry.getValue().toJson());
+        }
+        JSONObject json = new JSONObject();
+        json.put("counters", counters);
+        json.put("histograms", histograms);
+        return json;
+    }
+
+    /**
+     * Returns every metric sorted by name, one per line.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, AtomicLong> entry
+                : new TreeMap<>(mCounters).entrySet()) {
+            builder.append(entry.getKey()).append(": ").append(entry.getValue().get())
+                    .append('\n');
+        }
+        for (LatencyHistogram histogram
+                : new TreeMap<>(mHistograms).values()) {
+            builder.append(histogram).append('\n');
+        }
+        return builder.toString();
+    }
+}
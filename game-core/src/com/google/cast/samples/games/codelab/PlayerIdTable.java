@@ -0,0 +1,74 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Maps Game Manager player IDs to dense integers, starting at 0, in the order they are first
+ * seen. The integers can be used to index arrays and BitSets instead of keying collections by
+ * string. A table is only valid for one session.
+ */
+public class PlayerIdTable {
+
+    public static final int NO_PLAYER = -1;
+
+    private final HashMap<String, Integer> mIndices = new HashMap<>();
+    private final ArrayList<String> mPlayerIds = new ArrayList<>();
+
+    /**
+     * Returns the index for the player ID, assigning a new one if the player was not seen before.
+     */
+    public int intern(String playerId) {
+        Integer index = mIndices.get(playerId);
+        if (index != null) {
+            return index;
+        }
+        int newIndex = mPlayerIds.size();
+        mPlayerIds.add(playerId);
+        mIndices.put(playerId, newIndex);
+        return newIndex;
+    }
+
+    /**
+     * Returns the index for the player ID, or {@link #NO_PLAYER} if the player was not seen yet.
+     */
+    public int indexOf(String playerId) {
+        Integer index = mIndices.get(playerId);
+        return (index == null) ? NO_PLAYER : index;
+    }
+
+    /**
+     * Returns the player ID for an index returned by {@link #intern}.
+     */
+    public String getPlayerId(int index) {
+        return mPlayerIds.get(index);
+    }
+
+    /**
+     * Returns the number of interned players. All indices are below this value.
+     */
+    public int size() {
+        return mPlayerIds.size();
+    }
+
+    /**
+     * Forgets all the players, for example when a new session starts.
+     */
+    public void clear() {
+        mIndices.clear();
+        mPlayerIds.clear();
+    }
+}
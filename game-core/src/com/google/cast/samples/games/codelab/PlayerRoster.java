@@ -0,0 +1,244 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Caches the turn order of the players in the PLAYING state, along with per-turn bookkeeping for
+ * every player. The roster is built once from the full state of a GameTransport and then kept up
+ * to date from individual player state changes, so that turn checks are plain field reads.
+ *
+ * <p>Players are interned to dense indices with a {@link PlayerIdTable}, and per-player state is
+ * held in BitSets indexed by them, so that recording a guess or starting a turn does not allocate.
+ */
+public class PlayerRoster {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final PlayerIdTable mPlayerIds = new PlayerIdTable();
+
+    // Turn order is determined by sorting participant IDs, which are consistent across devices
+    // (but not across sessions). Holds player indices, only the first mPlayingCount are valid.
+    private int[] mTurnOrder = new int[INITIAL_CAPACITY];
+    private int mPlayingCount = 0;
+
+    // Per-player state, indexed by player index
+    private final BitSet mConnected = new BitSet(INITIAL_CAPACITY);
+    private final BitSet mGuessedThisTurn = new BitSet(INITIAL_CAPACITY);
+    private final BitSet mCorrectThisTurn = new BitSet(INITIAL_CAPACITY);
+
+    private int mMyPlayerIndex = PlayerIdTable.NO_PLAYER;
+
+    // True once the roster has been built from a full state
+    private boolean mInitialized = false;
+
+    // Index of the local player in the turn order, or -1 if not playing
+    private int mMyTurnIndex = -1;
+
+    /**
+     * Rebuilds the roster from scratch. This starts a new session: player indices handed out
+     * before are no longer valid.
+     *
+     * @param transport the transport to read the current game state and local player from.
+     */
+    public void reset(GameTransport transport) {
+        String myPlayerId = transport.getLastUsedPlayerId();
+        mPlayerIds.clear();
+        mConnected.clear();
+        startTurn();
+        mMyPlayerIndex = (myPlayerId == null) ? PlayerIdTable.NO_PLAYER
+                : mPlayerIds.intern(myPlayerId);
+        mInitialized = true;
+
+        mPlayingCount = 0;
+        for (String playerId : transport.getPlayerIds()) {
+            updatePlayer(playerId, transport.getPlayerState(playerId));
+        }
+        updateMyTurnIndex();
+    }
+
+    /**
+     * Returns true if {@link #reset} has been called, so that state changes can be applied
+     * incrementally.
+     */
+    public boolean isInitialized() {
+        return mInitialized;
+    }
+
+    /**
+     * Applies a player state change to the roster. The roster must have been initialized with
+     * {@link #reset} first.
+     *
+     * @return true if the turn order changed.
+     */
+    public boolean onPlayerStateChanged(String playerId, int playerState) {
+        boolean changed = updatePlayer(playerId, playerState);
+        if (changed) {
+            updateMyTurnIndex();
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the number of players in the PLAYING state.
+     */
+    public int getPlayingCount() {
+        return mPlayingCount;
+    }
+
+    /**
+     * Returns the position of the local player in the turn order, or -1 if not playing.
+     */
+    public int getMyTurnIndex() {
+        return mMyTurnIndex;
+    }
+
+    /**
+     * Returns the ID of the player at the given position in the turn order.
+     */
+    public String getPlayerIdInTurn(int turnIndex) {
+        return mPlayerIds.getPlayerId(mTurnOrder[turnIndex]);
+    }
+
+    /**
+     * Returns true if the local player is the artist for the given match turn. A player alone in
+     * the game is always the artist.
+     */
+    public boolean isMyTurn(int matchTurnNumber) {
+        if (mPlayingCount <= 1) {
+            return true;
+        }
+        return mMyTurnIndex == (matchTurnNumber % mPlayingCount);
+    }
+
+    /**
+     * Returns true if the player was connected in the last state seen.
+     */
+    public boolean isConnected(String playerId) {
+        int index = mPlayerIds.indexOf(playerId);
+        return (index != PlayerIdTable.NO_PLAYER) && mConnected.get(index);
+    }
+
+    /**
+     * Forgets the guesses of the previous turn.
+     */
+    public void startTurn() {
+        mGuessedThisTurn.clear();
+        mCorrectThisTurn.clear();
+    }
+
+    /**
+     * Records a guess made by a player during the current turn.
+     *
+     * @return true if this is the first guess from this player this turn.
+     */
+    public boolean recordGuess(String playerId, boolean correct) {
+        int index = mPlayerIds.intern(playerId);
+        if (mGuessedThisTurn.get(index)) {
+            return false;
+        }
+        mGuessedThisTurn.set(index);
+        if (correct) {
+            mCorrectThisTurn.set(index);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of players that have guessed this turn.
+     */
+    public int getGuessCount() {
+        return mGuessedThisTurn.cardinality();
+    }
+
+    /**
+     * Returns the number of players that have guessed correctly this turn.
+     */
+    public int getCorrectGuessCount() {
+        return mCorrectThisTurn.cardinality();
+    }
+
+    /**
+     * Updates the per-player state and the turn order for one player.
+     *
+     * @return true if the turn order changed.
+     */
+    private boolean updatePlayer(String playerId, int playerState) {
+        int index = mPlayerIds.intern(playerId);
+        mConnected.set(index, GameStates.isActive(playerState));
+        if (playerState == GameStates.PLAYER_STATE_PLAYING) {
+            return addToTurnOrder(index);
+        }
+        return removeFromTurnOrder(index);
+    }
+
+    private boolean addToTurnOrder(int index) {
+        int position = searchTurnOrder(mPlayerIds.getPlayerId(index));
+        if (position >= 0) {
+            return false;
+        }
+        position = -(position + 1);
+        if (mPlayingCount == mTurnOrder.length) {
+            mTurnOrder = Arrays.copyOf(mTurnOrder, mTurnOrder.length * 2);
+        }
+        System.arraycopy(mTurnOrder, position, mTurnOrder, position + 1,
+                mPlayingCount - position);
+        mTurnOrder[position] = index;
+        mPlayingCount++;
+        return true;
+    }
+
+    private boolean removeFromTurnOrder(int index) {
+        int position = searchTurnOrder(mPlayerIds.getPlayerId(index));
+        if (position < 0) {
+            return false;
+        }
+        System.arraycopy(mTurnOrder, position + 1, mTurnOrder, position,
+                mPlayingCount - position - 1);
+        mPlayingCount--;
+        return true;
+    }
+
+    /**
+     * Binary search of the turn order by player ID.
+     *
+     * @return the position of the player, or (-(insertion point) - 1) if not found.
+     */
+    private int searchTurnOrder(String playerId) {
+        int low = 0;
+        int high = mPlayingCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = mPlayerIds.getPlayerId(mTurnOrder[mid]).compareTo(playerId);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void updateMyTurnIndex() {
+        int position = -1;
+        if (mMyPlayerIndex != PlayerIdTable.NO_PLAYER) {
+            position = searchTurnOrder(mPlayerIds.getPlayerId(mMyPlayerIndex));
+        }
+        mMyTurnIndex = Math.max(position, -1);
+    }
+}
@@ -0,0 +1,307 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The receiver side of the game: the logic of receiver/game.js, along with the player, lobby and
+ * gameplay bookkeeping done by the Game Manager on the receiver. It has no transport of its own;
+ * state changes and outgoing game messages go to an {@link Output}.
+ *
+ * <p>Not thread safe, callers must serialize calls.
+ */
+public class ReceiverGame {
+
+    // Extra data of the ready request
+    public static final String EXTRA_NAME = "name";
+
+    /**
+     * Receives what the receiver sends to the senders.
+     */
+    public interface Output {
+
+        void onPlayerStateChanged(String playerId, int newPlayerState, int oldPlayerState);
+
+        void onLobbyStateChanged(int newLobbyState, int oldLobbyState);
+
+        void onGameplayStateChanged(int newGameplayState, int oldGameplayState);
+
+        /**
+         * Sends a game message to the sender of one player.
+         *
+         * @param toPlayerId   the player to send to.
+         * @param fromPlayerId the player the message came from.
+         */
+        void sendGameMessage(String toPlayerId, String fromPlayerId, JSONObject message);
+    }
+
+    /**
+     * Notified after a game message from a player has been applied, to measure the message path.
+     */
+    public interface ApplyListener {
+
+        void onGameMessageApplied(String playerId, JSONObject message);
+    }
+
+    private final Output mOutput;
+    private ApplyListener mApplyListener;
+
+    // Insertion ordered, so that players are reported in the order they joined
+    private final Map<String, Integer> mPlayerStates = new LinkedHashMap<>();
+    private final Map<String, String> mPlayerNames = new HashMap<>();
+    private int mLobbyState = GameStates.LOBBY_STATE_UNKNOWN;
+    private int mGameplayState = GameStates.GAMEPLAY_STATE_UNKNOWN;
+    private int mNextPlayerNumber = 1;
+
+    // The last words message, replayed to players joining in the middle of a turn
+    private JSONObject mWordsMessage;
+    private String mWordsPlayerId;
+
+    // Cells drawn on the receiver, indexed by the grid value of the messages
+    private final BitSet mGrid = new BitSet();
+
+    private String mTitle = "";
+    private String mInfo = "";
+
+    public ReceiverGame(Output output) {
+        mOutput = output;
+    }
+
+    public void setApplyListener(ApplyListener applyListener) {
+        mApplyListener = applyListener;
+    }
+
+    /**
+     * Starts the game: the lobby opens and the info screen is shown.
+     */
+    public void start() {
+        setGameplayState(GameStates.GAMEPLAY_STATE_SHOWING_INFO_SCREEN);
+        setLobbyState(GameStates.LOBBY_STATE_OPEN);
+        mTitle = "Lobby";
+    }
+
+    /**
+     * Returns a new player ID, for a sender making its first request.
+     */
+    public String newPlayerId() {
+        return "player" + (mNextPlayerNumber++);
+    }
+
+    /**
+     * Handles a player state request.
+     *
+     * @param playerId         the player making the request.
+     * @param playerState      the requested state, one of AVAILABLE, READY, PLAYING or QUIT.
+     * @param extraMessageData the data sent along with the request, may be null.
+     * @return null if the request succeeded, or a description of the error.
+     */
+    public String requestPlayerState(String playerId, int playerState,
+            JSONObject extraMessageData) {
+        int oldPlayerState = getPlayerState(playerId);
+        switch (playerState) {
+            case GameStates.PLAYER_STATE_AVAILABLE:
+                setPlayerState(playerId, playerState);
+                return null;
+            case GameStates.PLAYER_STATE_READY:
+                if (!GameStates.isActive(oldPlayerState)) {
+                    return "Unknown player " + playerId;
+                }
+                if (mLobbyState != GameStates.LOBBY_STATE_OPEN) {
+                    return "The lobby is closed";
+                }
+                setPlayerState(playerId, playerState);
+                onPlayerReady(playerId, extraMessageData);
+                return null;
+            case GameStates.PLAYER_STATE_PLAYING:
+                if (!GameStates.isActive(oldPlayerState)) {
+                    return "Unknown player " + playerId;
+                }
+                setPlayerState(playerId, playerState);
+                onPlayerPlaying(playerId);
+                return null;
+            case GameStates.PLAYER_STATE_QUIT:
+                if (!GameStates.isActive(oldPlayerState)) {
+                    return "Unknown player " + playerId;
+                }
+                setPlayerState(playerId, playerState);
+                onPlayerQuit();
+                return null;
+            default:
+                return "Unsupported player state " + playerState;
+        }
+    }
+
+    /**
+     * Handles a game message sent by a player. Messages from players that are not in the game are
+     * ignored.
+     */
+    public void onGameMessage(String playerId, JSONObject message) {
+        if (!GameStates.isActive(getPlayerState(playerId))) {
+            return;
+        }
+        applyGameMessage(playerId, message);
+        if (mApplyListener != null) {
+            mApplyListener.onGameMessageApplied(playerId, message);
+        }
+    }
+
+    public int getPlayerState(String playerId) {
+        Integer playerState = mPlayerStates.get(playerId);
+        return (playerState == null) ? GameStates.PLAYER_STATE_UNKNOWN : playerState;
+    }
+
+    /**
+     * Returns the IDs of all the players, in the order they joined.
+     */
+    public List<String> getPlayerIds() {
+        return new ArrayList<>(mPlayerStates.keySet());
+    }
+
+    public int getLobbyState() {
+        return mLobbyState;
+    }
+
+    public int getGameplayState() {
+        return mGameplayState;
+    }
+
+    /**
+     * Returns true if the cell with the given grid value has been drawn since the last clear.
+     */
+    public boolean isCellDrawn(int cell) {
+        return mGrid.get(cell);
+    }
+
+    public int getDrawnCellCount() {
+        return mGrid.cardinality();
+    }
+
+    public String getTitle() {
+        return mTitle;
+    }
+
+    public String getInfo() {
+        return mInfo;
+    }
+
+    private void applyGameMessage(String playerId, JSONObject message) {
+        if (message.has(GameMessages.MESSAGE_CLEAR)) {
+            mGrid.clear();
+            return;
+        }
+        if (message.has(GameMessages.MESSAGE_ARTIST)) {
+            String artistId = message.optString(GameMessages.MESSAGE_ARTIST);
+            mInfo = mPlayerNames.get(artistId) + " is drawing.";
+            return;
+        }
+        if (message.has(GameMessages.MESSAGE_PLAYER)) {
+            if (mWordsMessage != null) {
+                mOutput.sendGameMessage(playerId, mWordsPlayerId, mWordsMessage);
+            }
+            return;
+        }
+        if (message.has(GameMessages.MESSAGE_WORDS)) {
+            sendGameMessageToAllConnectedPlayers(playerId, message);
+            mWordsMessage = message;
+            mWordsPlayerId = playerId;
+            return;
+        }
+        if (message.has(GameMessages.MESSAGE_GUESS)) {
+            // game.js tests the value rather than the key, which drops a guess of the first word.
+            sendGameMessageToAllConnectedPlayers(playerId, message);
+            return;
+        }
+        int cell = message.optInt(GameMessages.MESSAGE_GRID, -1);
+        if (cell >= 0) {
+            mGrid.set(cell);
+        }
+    }
+
+    private void onPlayerReady(String playerId, JSONObject extraMessageData) {
+        String playerName = (extraMessageData == null) ? null
+                : extraMessageData.optString(EXTRA_NAME, null);
+        mInfo = playerName + " has joined.";
+        mPlayerNames.put(playerId, playerName);
+    }
+
+    private void onPlayerPlaying(String playerId) {
+        // Update all ready players to playing state.
+        for (String readyPlayerId : getPlayerIds()) {
+            if (getPlayerState(readyPlayerId) == GameStates.PLAYER_STATE_READY) {
+                setPlayerState(readyPlayerId, GameStates.PLAYER_STATE_PLAYING);
+            }
+        }
+        setGameplayState(GameStates.GAMEPLAY_STATE_RUNNING);
+        setLobbyState(GameStates.LOBBY_STATE_CLOSED);
+        mTitle = "Playing";
+        mInfo = mPlayerNames.get(playerId) + " is playing.";
+    }
+
+    private void onPlayerQuit() {
+        for (int playerState : mPlayerStates.values()) {
+            if (GameStates.isActive(playerState)) {
+                return;
+            }
+        }
+        // No more players connected: the receiver application stops, and the next sender starts
+        // a new game.
+        mPlayerStates.clear();
+        mPlayerNames.clear();
+        mWordsMessage = null;
+        mWordsPlayerId = null;
+        mGrid.clear();
+        mInfo = "";
+        start();
+    }
+
+    private void sendGameMessageToAllConnectedPlayers(String fromPlayerId, JSONObject message) {
+        for (String playerId : getPlayerIds()) {
+            if (GameStates.isActive(getPlayerState(playerId))) {
+                mOutput.sendGameMessage(playerId, fromPlayerId, message);
+            }
+        }
+    }
+
+    private void setPlayerState(String playerId, int playerState) {
+        int oldPlayerState = getPlayerState(playerId);
+        mPlayerStates.put(playerId, playerState);
+        if (playerState != oldPlayerState) {
+            mOutput.onPlayerStateChanged(playerId, playerState, oldPlayerState);
+        }
+    }
+
+    private void setLobbyState(int lobbyState) {
+        int oldLobbyState = mLobbyState;
+        mLobbyState = lobbyState;
+        if (lobbyState != oldLobbyState) {
+            mOutput.onLobbyStateChanged(lobbyState, oldLobbyState);
+        }
+    }
+
+    private void setGameplayState(int gameplayState) {
+        int oldGameplayState = mGameplayState;
+        mGameplayState = gameplayState;
+        if (gameplayState != oldGameplayState) {
+            mOutput.onGameplayStateChanged(gameplayState, oldGameplayState);
+        }
+    }
+}
@@ -0,0 +1,363 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link GameTransport} to the stand-in receiver over a TCP socket, using
+ * {@link WireProtocol}. A reader thread keeps a copy of the game state up to date from the
+ * frames sent by the receiver, so that the state getters do not block.
+ *
+ * <p>Thread safe. Callbacks are run on the executor given to {@link #connect}, which must run
+ * them in order, for example a single thread executor.
+ */
+public class SocketGameTransport implements GameTransport {
+
+    private final Socket mSocket;
+    private final OutputStream mOut;
+    private final DataInputStream mIn;
+    private final Executor mCallbackExecutor;
+
+    private final AtomicInteger mNextRequestId = new AtomicInteger(1);
+    private final Map<Integer, RequestCallback> mPendingRequests = new ConcurrentHashMap<>();
+    private volatile Listener mListener;
+    // Cleared by whichever of the reader thread and the callers closes the connection first
+    private final AtomicBoolean mConnected = new AtomicBoolean(true);
+
+    // Copy of the game state, guarded by mStateLock
+    private final Object mStateLock = new Object();
+    private final Map<String, Integer> mPlayerStates = new LinkedHashMap<>();
+    private int mLobbyState = GameStates.LOBBY_STATE_UNKNOWN;
+    private int mGameplayState = GameStates.GAMEPLAY_STATE_UNKNOWN;
+    private String mPlayerId;
+
+    private SocketGameTransport(Socket socket, Executor callbackExecutor) throws IOException {
+        mSocket = socket;
+        mOut = new BufferedOutputStream(socket.getOutputStream());
+        mIn = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        mCallbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Connects to a stand-in receiver and starts reading from it.
+     */
+    public static SocketGameTransport connect(String host, int port, Executor callbackExecutor)
+            throws IOException {
+        Socket socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(host, port));
+        SocketGameTransport transport = new SocketGameTransport(socket, callbackExecutor);
+        Thread reader = new Thread(transport.new Reader(), "SocketGameTransport-" + port);
+        reader.setDaemon(true);
+        reader.start();
+        return transport;
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    @Override
+    public void sendPlayerAvailableRequest(JSONObject extraMessageData,
+            RequestCallback callback) {
+        sendPlayerRequest(GameStates.PLAYER_STATE_AVAILABLE, extraMessageData, callback);
+    }
+
+    @Override
+    public void sendPlayerReadyRequest(JSONObject extraMessageData, RequestCallback callback) {
+        sendPlayerRequest(GameStates.PLAYER_STATE_READY, extraMessageData, callback);
+    }
+
+    @Override
+    public void sendPlayerPlayingRequest(JSONObject extraMessageData, RequestCallback callback) {
+        sendPlayerRequest(GameStates.PLAYER_STATE_PLAYING, extraMessageData, callback);
+    }
+
+    @Override
+    public void sendGameMessage(JSONObject message) {
+        JSONObject frame = WireProtocol.newFrame(WireProtocol.TYPE_GAME_MESSAGE);
+        try {
+            frame.put(WireProtocol.KEY_MESSAGE, message);
+        } catch (JSONException e) {
+            throw new IllegalArgumentException(e);
+        }
+        send(frame);
+    }
+
+    @Override
+    public String getLastUsedPlayerId() {
+        synchronized (mStateLock) {
+            return mPlayerId;
+        }
+    }
+
+    @Override
+    public int getPlayerState(String playerId) {
+        synchronized (mStateLock) {
+            Integer playerState = mPlayerStates.get(playerId);
+            return (playerState == null) ? GameStates.PLAYER_STATE_UNKNOWN : playerState;
+        }
+    }
+
+    @Override
+    public List<String> getPlayerIds() {
+        synchronized (mStateLock) {
+            return new ArrayList<>(mPlayerStates.keySet());
+        }
+    }
+
+    @Override
+    public int getLobbyState() {
+        synchronized (mStateLock) {
+            return mLobbyState;
+        }
+    }
+
+    @Override
+    public int getGameplayState() {
+        synchronized (mStateLock) {
+            return mGameplayState;
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return mConnected.get();
+    }
+
+    @Override
+    public void dispose() {
+        close();
+    }
+
+    private void sendPlayerRequest(int playerState, JSONObject extraMessageData,
+            RequestCallback callback) {
+        int requestId = mNextRequestId.getAndIncrement();
+        JSONObject frame = WireProtocol.newFrame(WireProtocol.TYPE_REQUEST);
+        try {
+            frame.put(WireProtocol.KEY_REQUEST_ID, requestId);
+            frame.put(WireProtocol.KEY_STATE, playerState);
+            frame.putOpt(WireProtocol.KEY_EXTRA, extraMessageData);
+        } catch (JSONException e) {
+            throw new IllegalArgumentException(e);
+        }
+        if (callback != null) {
+            mPendingRequests.put(requestId, callback);
+        }
+        if (!send(frame)) {
+            failRequest(requestId, "Not connected to the receiver");
+        }
+    }
+
+    /**
+     * @return false if the frame could not be sent because the connection is closed.
+     */
+    private boolean send(JSONObject frame) {
+        if (!mConnected.get()) {
+            return false;
+        }
+        try {
+            synchronized (mOut) {
+                WireProtocol.writeFrame(mOut, frame);
+                mOut.flush();
+            }
+            return true;
+        } catch (IOException e) {
+            close();
+            return false;
+        }
+    }
+
+    private void close() {
+        if (!mConnected.compareAndSet(true, false)) {
+            return;
+        }
+        try {
+            mSocket.close();
+        } catch (IOException e) {
+            // Already closed.
+        }
+        Iterator<Integer> requestIds = mPendingRequests.keySet().iterator();
+        while (requestIds.hasNext()) {
+            failRequest(requestIds.next(), "Connection to the receiver closed");
+        }
+    }
+
+    private void failRequest(int requestId, final String errorMessage) {
+        final RequestCallback callback = mPendingRequests.remove(requestId);
+        if (callback != null) {
+            mCallbackExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onRequestFailed(errorMessage);
+                }
+            });
+        }
+    }
+
+    /**
+     * Applies a frame from the receiver to the copy of the state, and queues its callback.
+     */
+    private void onFrame(JSONObject frame) throws JSONException {
+        String type = frame.getString(WireProtocol.KEY_TYPE);
+        if (WireProtocol.TYPE_SNAPSHOT.equals(type)) {
+            onSnapshot(frame);
+        } else if (WireProtocol.TYPE_RESULT.equals(type)) {
+            onResult(frame);
+        } else if (WireProtocol.TYPE_PLAYER_STATE.equals(type)) {
+            final String playerId = frame.getString(WireProtocol.KEY_PLAYER_ID);
+            final int newPlayerState = frame.getInt(WireProtocol.KEY_STATE);
+            final int oldPlayerState = frame.getInt(WireProtocol.KEY_OLD_STATE);
+            synchronized (mStateLock) {
+                mPlayerStates.put(playerId, newPlayerState);
+            }
+            deliver(new ListenerCall() {
+                @Override
+                void call(Listener listener) {
+                    GameStates.dispatchPlayerStateChanged(listener, playerId, newPlayerState,
+                            oldPlayerState);
+                }
+            });
+        } else if (WireProtocol.TYPE_LOBBY_STATE.equals(type)) {
+            final int newLobbyState = frame.getInt(WireProtocol.KEY_STATE);
+            final int oldLobbyState = frame.getInt(WireProtocol.KEY_OLD_STATE);
+            synchronized (mStateLock) {
+                mLobbyState = newLobbyState;
+            }
+            deliver(new ListenerCall() {
+                @Override
+                void call(Listener listener) {
+                    listener.onLobbyStateChanged(newLobbyState, oldLobbyState);
+                }
+            });
+        } else if (WireProtocol.TYPE_GAMEPLAY_STATE.equals(type)) {
+            final int newGameplayState = frame.getInt(WireProtocol.KEY_STATE);
+            final int oldGameplayState = frame.getInt(WireProtocol.KEY_OLD_STATE);
+            synchronized (mStateLock) {
+                mGameplayState = newGameplayState;
+            }
+            deliver(new ListenerCall() {
+                @Override
+                void call(Listener listener) {
+                    listener.onGameplayStateChanged(newGameplayState, oldGameplayState);
+                }
+            });
+        } else if (WireProtocol.TYPE_GAME_MESSAGE.equals(type)) {
+            final String playerId = frame.getString(WireProtocol.KEY_PLAYER_ID);
+            final JSONObject message = frame.getJSONObject(WireProtocol.KEY_MESSAGE);
+            deliver(new ListenerCall() {
+                @Override
+                void call(Listener listener) {
+                    listener.onGameMessageReceived(playerId, message);
+                }
+            });
+        }
+    }
+
+    private void onSnapshot(JSONObject frame) throws JSONException {
+        JSONObject players = frame.getJSONObject(WireProtocol.KEY_PLAYERS);
+        synchronized (mStateLock) {
+            mPlayerStates.clear();
+            Iterator<?> playerIds = players.keys();
+            while (playerIds.hasNext()) {
+                String playerId = (String) playerIds.next();
+                mPlayerStates.put(playerId, players.getInt(playerId));
+            }
+            mLobbyState = frame.getInt(WireProtocol.KEY_LOBBY_STATE);
+            mGameplayState = frame.getInt(WireProtocol.KEY_GAMEPLAY_STATE);
+        }
+    }
+
+    private void onResult(JSONObject frame) throws JSONException {
+        int requestId = frame.getInt(WireProtocol.KEY_REQUEST_ID);
+        final String playerId = frame.getString(WireProtocol.KEY_PLAYER_ID);
+        final int playerState = frame.getInt(WireProtocol.KEY_STATE);
+        final String error = frame.optString(WireProtocol.KEY_ERROR, null);
+        synchronized (mStateLock) {
+            mPlayerId = playerId;
+        }
+        final RequestCallback callback = mPendingRequests.remove(requestId);
+        if (callback == null) {
+            return;
+        }
+        mCallbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (error == null) {
+                    callback.onRequestSucceeded(playerId, playerState);
+                } else {
+                    callback.onRequestFailed(error);
+                }
+            }
+        });
+    }
+
+    private void deliver(final ListenerCall call) {
+        mCallbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Listener listener = mListener;
+                if (listener != null) {
+                    call.call(listener);
+                }
+            }
+        });
+    }
+
+    /**
+     * A listener callback, made with the listener set when it is run.
+     */
+    private abstract static class ListenerCall {
+        abstract void call(Listener listener);
+    }
+
+    /**
+     * Reads frames until the connection is closed.
+     */
+    private class Reader implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                while (mConnected.get()) {
+                    onFrame(WireProtocol.readFrame(mIn));
+                }
+            } catch (IOException | JSONException e) {
+                // The connection was closed or the receiver sent garbage, either way it is lost.
+            } finally {
+                close();
+            }
+        }
+    }
+}
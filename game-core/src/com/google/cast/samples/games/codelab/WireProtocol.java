@@ -0,0 +1,146 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * The protocol between a {@link SocketGameTransport} and the stand-in receiver. Every frame is a
+ * JSON object in UTF-8, preceded by its length as a 4 byte big-endian integer. The "type" key of
+ * the object is one of the TYPE_* constants.
+ */
+public final class WireProtocol {
+
+    public static final int HEADER_SIZE = 4;
+    public static final int MAX_FRAME_SIZE = 64 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Sender to receiver: player state request, answered by a result
+    public static final String TYPE_REQUEST = "request";
+    // Both ways: game message from a sender, or from the receiver to a sender
+    public static final String TYPE_GAME_MESSAGE = "gameMessage";
+    // Receiver to sender
+    public static final String TYPE_RESULT = "result";
+    public static final String TYPE_SNAPSHOT = "snapshot";
+    public static final String TYPE_PLAYER_STATE = "playerState";
+    public static final String TYPE_LOBBY_STATE = "lobbyState";
+    public static final String TYPE_GAMEPLAY_STATE = "gameplayState";
+
+    public static final String KEY_TYPE = "type";
+    public static final String KEY_REQUEST_ID = "requestId";
+    public static final String KEY_PLAYER_ID = "playerId";
+    public static final String KEY_STATE = "state";
+    public static final String KEY_OLD_STATE = "oldState";
+    public static final String KEY_EXTRA = "extra";
+    public static final String KEY_ERROR = "error";
+    public static final String KEY_MESSAGE = "message";
+    // Snapshot sent on connection: player states by player ID, lobby and gameplay states
+    public static final String KEY_PLAYERS = "players";
+    public static final String KEY_LOBBY_STATE = "lobbyState";
+    public static final String KEY_GAMEPLAY_STATE = "gameplayState";
+
+    private WireProtocol() {
+    }
+
+    /**
+     * Creates a frame of the given type, to be filled with its other keys.
+     */
+    public static JSONObject newFrame(String type) {
+        JSONObject frame = new JSONObject();
+        try {
+            frame.put(KEY_TYPE, type);
+        } catch (JSONException e) {
+            // Only thrown for null keys.
+            throw new IllegalArgumentException(e);
+        }
+        return frame;
+    }
+
+    /**
+     * Returns the frame with its header, ready to be written to a channel.
+     */
+    public static ByteBuffer encode(JSONObject frame) throws IOException {
+        byte[] payload = frame.toString().getBytes(UTF_8);
+        checkFrameSize(payload.length);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        buffer.putInt(payload.length).put(payload);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decodes the next frame of a buffer being read from, and consumes it.
+     *
+     * @return the frame, or null if the buffer does not hold a complete frame yet, in which case
+     * nothing is consumed.
+     * @throws IOException if the frame is too large or not valid JSON.
+     */
+    public static JSONObject decode(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        int length = buffer.getInt(buffer.position());
+        checkFrameSize(length);
+        if (buffer.remaining() < HEADER_SIZE + length) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.position(buffer.position() + HEADER_SIZE);
+        buffer.get(payload);
+        return parse(payload);
+    }
+
+    /**
+     * Writes a frame to a stream, without flushing it.
+     */
+    public static void writeFrame(OutputStream out, JSONObject frame) throws IOException {
+        ByteBuffer buffer = encode(frame);
+        out.write(buffer.array(), 0, buffer.limit());
+    }
+
+    /**
+     * Reads the next frame of a stream, blocking until it is complete.
+     *
+     * @throws java.io.EOFException if the stream ends.
+     */
+    public static JSONObject readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        checkFrameSize(length);
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return parse(payload);
+    }
+
+    private static JSONObject parse(byte[] payload) throws IOException {
+        try {
+            return new JSONObject(new String(payload, UTF_8));
+        } catch (JSONException e) {
+            throw new IOException("Invalid frame", e);
+        }
+    }
+
+    private static void checkFrameSize(int length) throws IOException {
+        if (length < 0 || length > MAX_FRAME_SIZE) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Picks random subsets of the dictionary for the turns. Each sample runs the first steps of a
+ * Fisher-Yates shuffle over a private copy of the dictionary, so it costs O(number of words
+ * picked) instead of shuffling the whole dictionary. Not thread safe.
+ */
+public class WordSampler {
+
+    private final String[] mWords;
+    private final Random mRandom;
+
+    public WordSampler(String[] words, Random random) {
+        mWords = words.clone();
+        mRandom = random;
+    }
+
+    public int getDictionarySize() {
+        return mWords.length;
+    }
+
+    /**
+     * Returns distinct words picked at random, in random order.
+     *
+     * @param numWords the number of words to pick, at most the size of the dictionary.
+     */
+    public List<String> sample(int numWords) {
+        int count = Math.min(numWords, mWords.length);
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Swapping into a permutation left by previous samples keeps every subset equally
+            // likely.
+            int j = i + mRandom.nextInt(mWords.length - i);
+            String word = mWords[j];
+            mWords[j] = mWords[i];
+            mWords[i] = word;
+            result.add(word);
+        }
+        return result;
+    }
+}
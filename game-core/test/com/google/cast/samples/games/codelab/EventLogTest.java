@@ -0,0 +1,166 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class EventLogTest {
+
+    @Test
+    public void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(8, new EventLog(5).getCapacity());
+        assertEquals(8, new EventLog(8).getCapacity());
+        assertEquals(4096, new EventLog(4096).getCapacity());
+    }
+
+    @Test
+    public void keepsEventsInOrderBeforeWrapping() {
+        EventLog log = new EventLog(8);
+        int type = log.defineType("event", "%d");
+        for (int i = 0; i < 5; i++) {
+            log.log(type, i);
+        }
+        assertEquals(list(0, 1, 2, 3, 4), collectArgs(log));
+    }
+
+    @Test
+    public void wrapsAroundKeepingTheNewestEvents() {
+        EventLog log = new EventLog(8);
+        int type = log.defineType("event", "%d");
+        for (int i = 0; i < 21; i++) {
+            log.log(type, i);
+        }
+        assertEquals(21, log.getEventCount());
+        assertEquals(list(13, 14, 15, 16, 17, 18, 19, 20), collectArgs(log));
+    }
+
+    @Test
+    public void varintRoundTrip() throws IOException {
+        long[] values = {0, 1, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE,
+                (long) Integer.MAX_VALUE + 1, Long.MAX_VALUE, -1, Long.MIN_VALUE};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        for (long value : values) {
+            EventLog.writeVarint(output, value);
+        }
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (long value : values) {
+            assertEquals(value, EventLog.readVarint(input));
+        }
+        assertEquals(0, input.available());
+    }
+
+    @Test
+    public void smallVarintsTakeOneByte() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        EventLog.writeVarint(output, 127);
+        EventLog.writeSignedVarint(output, -64);
+        EventLog.writeSignedVarint(output, 63);
+        assertEquals(3, bytes.size());
+        EventLog.writeVarint(output, 128);
+        assertEquals(5, bytes.size());
+    }
+
+    @Test
+    public void signedVarintRoundTrip() throws IOException {
+        long[] values = {0, -1, 1, -64, 64, Integer.MIN_VALUE, Integer.MAX_VALUE,
+                Long.MIN_VALUE, Long.MAX_VALUE};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        for (long value : values) {
+            EventLog.writeSignedVarint(output, value);
+        }
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (long value : values) {
+            assertEquals(value, EventLog.readSignedVarint(input));
+        }
+    }
+
+    @Test
+    public void decoderReadsWhatTheLogWrites() throws IOException {
+        EventLog log = new EventLog(4);
+        int touch = log.defineType("touch", "x=%d y=%d");
+        int guess = log.defineType("guess", "word=%d correct=%d");
+        log.log(touch, 1, 2);
+        log.log(guess, -5, 1);
+        for (int i = 0; i < 4; i++) {
+            log.log(touch, i, Integer.MIN_VALUE);
+        }
+
+        ByteArrayOutputStream dump = new ByteArrayOutputStream();
+        log.writeTo(dump);
+        String timeline = EventLogDecoder.decode(new ByteArrayInputStream(dump.toByteArray()));
+
+        String[] lines = timeline.split("\n");
+        assertEquals(5, lines.length);
+        assertTrue(lines[0], lines[0].endsWith("4 events"));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(lines[i + 1], lines[i + 1].contains("touch"));
+            assertTrue(lines[i + 1],
+                    lines[i + 1].endsWith("x=" + i + " y=" + Integer.MIN_VALUE));
+        }
+    }
+
+    @Test
+    public void decoderReadsAnEmptyLog() throws IOException {
+        EventLog log = new EventLog(4);
+        log.defineType("touch", "x=%d y=%d");
+        ByteArrayOutputStream dump = new ByteArrayOutputStream();
+        log.writeTo(dump);
+        String timeline = EventLogDecoder.decode(new ByteArrayInputStream(dump.toByteArray()));
+        assertTrue(timeline, timeline.trim().endsWith("0 events"));
+    }
+
+    @Test
+    public void decoderRejectsOtherFiles() {
+        try {
+            EventLogDecoder.decode(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5}));
+            fail();
+        } catch (IOException e) {
+            // Expected.
+        }
+    }
+
+    private static List<Integer> collectArgs(EventLog log) {
+        final List<Integer> args = new ArrayList<>();
+        log.forEach(new EventLog.Visitor() {
+            @Override
+            public void onEvent(long timeNanos, int type, int arg0, int arg1, int arg2) {
+                args.add(arg0);
+            }
+        });
+        return args;
+    }
+
+    private static List<Integer> list(int... values) {
+        List<Integer> list = new ArrayList<>();
+        for (int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
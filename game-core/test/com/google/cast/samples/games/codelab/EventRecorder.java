@@ -0,0 +1,67 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the callbacks of a transport as strings, in the order they are delivered.
+ */
+class EventRecorder implements GameTransport.Listener, GameTransport.RequestCallback {
+
+    final List<String> mEvents = new ArrayList<>();
+
+    @Override
+    public void onPlayerJoined(String playerId) {
+        mEvents.add("joined " + playerId);
+    }
+
+    @Override
+    public void onPlayerLeft(String playerId) {
+        mEvents.add("left " + playerId);
+    }
+
+    @Override
+    public void onPlayerStateChanged(String playerId, int newPlayerState, int oldPlayerState) {
+        mEvents.add("player " + playerId + " " + newPlayerState);
+    }
+
+    @Override
+    public void onLobbyStateChanged(int newLobbyState, int oldLobbyState) {
+        mEvents.add("lobby " + newLobbyState);
+    }
+
+    @Override
+    public void onGameplayStateChanged(int newGameplayState, int oldGameplayState) {
+        mEvents.add("gameplay " + newGameplayState);
+    }
+
+    @Override
+    public void onGameMessageReceived(String playerId, JSONObject message) {
+        mEvents.add("message " + playerId + " " + message);
+    }
+
+    @Override
+    public void onRequestSucceeded(String playerId, int playerState) {
+        mEvents.add("succeeded " + playerId + " " + playerState);
+    }
+
+    @Override
+    public void onRequestFailed(String errorMessage) {
+        mEvents.add("failed " + errorMessage);
+    }
+}
@@ -0,0 +1,105 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram("empty");
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMinNanos());
+        assertEquals(0, histogram.getPercentileNanos(50));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram("small");
+        for (int nanos = 0; nanos < 8; nanos++) {
+            histogram.record(nanos);
+        }
+        assertEquals(3, histogram.getPercentileNanos(50));
+        assertEquals(7, histogram.getPercentileNanos(100));
+        assertEquals(0, histogram.getPercentileNanos(0));
+    }
+
+    @Test
+    public void singleValueIsExactAtEveryEdge() {
+        for (int exponent = 3; exponent < 62; exponent++) {
+            long power = 1L << exponent;
+            for (long nanos : new long[] {power - 1, power, power + 1}) {
+                LatencyHistogram histogram = new LatencyHistogram("single");
+                histogram.record(nanos);
+                assertEquals(nanos, histogram.getPercentileNanos(50));
+                assertEquals(nanos, histogram.getPercentileNanos(100));
+            }
+        }
+    }
+
+    @Test
+    public void percentilesAreUpperBoundsWithinABucket() {
+        for (int exponent = 3; exponent < 60; exponent++) {
+            long power = 1L << exponent;
+            for (long nanos : new long[] {power - 1, power, power + 1, power + power / 8}) {
+                LatencyHistogram histogram = new LatencyHistogram("bounds");
+                histogram.record(nanos);
+                // A larger value keeps the maximum from clamping the first bucket's bound.
+                histogram.record(nanos * 4);
+                long p50 = histogram.getPercentileNanos(50);
+                assertTrue(nanos + " -> " + p50, p50 >= nanos);
+                assertTrue(nanos + " -> " + p50, p50 <= nanos + nanos / 8);
+            }
+        }
+    }
+
+    @Test
+    public void percentileRanks() {
+        LatencyHistogram histogram = new LatencyHistogram("ranks");
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1000);
+        }
+        histogram.record(1000000);
+        assertTrue(histogram.getPercentileNanos(99) < 1200);
+        assertEquals(1000000, histogram.getPercentileNanos(99.5));
+        assertEquals(1000000, histogram.getMaxNanos());
+        assertEquals(1000, histogram.getMinNanos());
+        assertEquals((99 * 1000 + 1000000) / 100, histogram.getMeanNanos());
+    }
+
+    @Test
+    public void negativeDurationsAreRecordedAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram("negative");
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0, histogram.getPercentileNanos(100));
+    }
+
+    @Test
+    public void resetForgetsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram("reset");
+        histogram.record(123456);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0, histogram.getPercentileNanos(99));
+        histogram.record(10);
+        assertEquals(10, histogram.getMinNanos());
+    }
+}
@@ -0,0 +1,158 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+
+/**
+ * Tests the delivery of callbacks and the state snapshots of {@link LoopbackGameTransport}.
+ */
+public class LoopbackGameTransportTest {
+
+    private static final int AVAILABLE = GameStates.PLAYER_STATE_AVAILABLE;
+    private static final int READY = GameStates.PLAYER_STATE_READY;
+
+    // Holds the callbacks until the test runs them
+    private final ArrayDeque<Runnable> mPending = new ArrayDeque<>();
+    private final Executor mQueueExecutor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mPending.addLast(command);
+        }
+    };
+
+    private LoopbackReceiver mReceiver;
+
+    @Before
+    public void setUp() {
+        mReceiver = new LoopbackReceiver(mQueueExecutor);
+    }
+
+    @Test
+    public void callbacksRunOnTheExecutor() {
+        LoopbackGameTransport transport = mReceiver.connect();
+        EventRecorder recorder = new EventRecorder();
+        transport.setListener(recorder);
+        transport.sendPlayerAvailableRequest(null, recorder);
+
+        // The request is applied at once, its callbacks wait for the executor.
+        assertEquals("player1", transport.getLastUsedPlayerId());
+        assertEquals(AVAILABLE, transport.getPlayerState("player1"));
+        assertTrue(recorder.mEvents.isEmpty());
+
+        runPending();
+        assertEquals(Arrays.asList("joined player1", "player player1 " + AVAILABLE,
+                "succeeded player1 " + AVAILABLE), recorder.mEvents);
+    }
+
+    @Test
+    public void callbacksAreDeliveredOneAtATime() {
+        final LoopbackGameTransport transport = mReceiver.connect();
+        final EventRecorder recorder = new EventRecorder();
+        transport.setListener(recorder);
+        transport.sendPlayerAvailableRequest(null, new EventRecorder() {
+            @Override
+            public void onRequestSucceeded(String playerId, int playerState) {
+                recorder.onRequestSucceeded(playerId, playerState);
+                transport.sendPlayerReadyRequest(null, recorder);
+                recorder.mEvents.add("returned");
+            }
+        });
+        transport.sendGameMessage(GameMessages.newPlayerMessage("player1"));
+
+        // A single delivery task runs everything, and the callbacks of the request made from a
+        // callback only run once that callback has returned.
+        assertEquals(1, mPending.size());
+        runPending();
+        assertEquals(Arrays.asList("joined player1", "player player1 " + AVAILABLE,
+                "succeeded player1 " + AVAILABLE, "returned", "player player1 " + READY,
+                "succeeded player1 " + READY), recorder.mEvents);
+    }
+
+    @Test
+    public void everyTransportSeesStateChanges() {
+        LoopbackGameTransport first = mReceiver.connect();
+        LoopbackGameTransport second = mReceiver.connect();
+        EventRecorder recorder = new EventRecorder();
+        second.setListener(recorder);
+        first.sendPlayerAvailableRequest(null, null);
+        first.sendPlayerPlayingRequest(null, null);
+        runPending();
+
+        assertEquals(Arrays.asList("joined player1", "player player1 " + AVAILABLE,
+                "player player1 " + GameStates.PLAYER_STATE_PLAYING,
+                "gameplay " + GameStates.GAMEPLAY_STATE_RUNNING,
+                "lobby " + GameStates.LOBBY_STATE_CLOSED), recorder.mEvents);
+    }
+
+    @Test
+    public void snapshotsFollowTheReceiver() {
+        LoopbackGameTransport first = mReceiver.connect();
+        LoopbackGameTransport second = mReceiver.connect();
+        assertNull(first.getLastUsedPlayerId());
+        assertTrue(first.getPlayerIds().isEmpty());
+        assertEquals(GameStates.PLAYER_STATE_UNKNOWN, first.getPlayerState("player1"));
+
+        second.sendPlayerAvailableRequest(null, null);
+        first.sendPlayerAvailableRequest(null, null);
+        assertEquals(Arrays.asList("player1", "player2"), first.getPlayerIds());
+        assertEquals("player2", first.getLastUsedPlayerId());
+        assertEquals(AVAILABLE, first.getPlayerState("player1"));
+        assertEquals(GameStates.LOBBY_STATE_OPEN, second.getLobbyState());
+        assertEquals(GameStates.GAMEPLAY_STATE_SHOWING_INFO_SCREEN, second.getGameplayState());
+    }
+
+    @Test
+    public void disposeQuitsThePlayer() {
+        LoopbackGameTransport leaving = mReceiver.connect();
+        LoopbackGameTransport staying = mReceiver.connect();
+        leaving.sendPlayerAvailableRequest(null, null);
+        staying.sendPlayerAvailableRequest(null, null);
+        runPending();
+        EventRecorder stayingRecorder = new EventRecorder();
+        staying.setListener(stayingRecorder);
+        EventRecorder leavingRecorder = new EventRecorder();
+        leaving.setListener(leavingRecorder);
+
+        leaving.dispose();
+        assertFalse(leaving.isConnected());
+        assertTrue(staying.isConnected());
+        leaving.sendPlayerAvailableRequest(null, leavingRecorder);
+        runPending();
+
+        assertEquals(Arrays.asList("player player1 " + GameStates.PLAYER_STATE_QUIT,
+                "left player1"), stayingRecorder.mEvents);
+        assertEquals(Collections.singletonList("failed The transport is disposed"),
+                leavingRecorder.mEvents);
+        assertEquals(GameStates.PLAYER_STATE_QUIT, staying.getPlayerState("player1"));
+    }
+
+    private void runPending() {
+        Runnable command;
+        while ((command = mPending.pollFirst()) != null) {
+            command.run();
+        }
+    }
+}
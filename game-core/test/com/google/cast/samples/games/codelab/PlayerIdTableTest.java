@@ -0,0 +1,63 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class PlayerIdTableTest {
+
+    @Test
+    public void internAssignsDenseIndicesInOrder() {
+        PlayerIdTable table = new PlayerIdTable();
+        assertEquals(0, table.intern("b"));
+        assertEquals(1, table.intern("a"));
+        assertEquals(0, table.intern("b"));
+        assertEquals(2, table.size());
+        assertEquals("a", table.getPlayerId(1));
+    }
+
+    @Test
+    public void indexOfUnknownPlayer() {
+        PlayerIdTable table = new PlayerIdTable();
+        table.intern("a");
+        assertEquals(PlayerIdTable.NO_PLAYER, table.indexOf("b"));
+        assertEquals(0, table.indexOf("a"));
+    }
+
+    @Test
+    public void clearStartsOver() {
+        PlayerIdTable table = new PlayerIdTable();
+        table.intern("a");
+        table.intern("b");
+        table.clear();
+        assertEquals(0, table.size());
+        assertEquals(PlayerIdTable.NO_PLAYER, table.indexOf("a"));
+        assertEquals(0, table.intern("b"));
+    }
+
+    @Test
+    public void internGrowsPastInitialCapacity() {
+        PlayerIdTable table = new PlayerIdTable();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, table.intern("p" + i));
+        }
+        assertEquals(100, table.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, table.indexOf("p" + i));
+            assertEquals("p" + i, table.getPlayerId(i));
+        }
+    }
+}
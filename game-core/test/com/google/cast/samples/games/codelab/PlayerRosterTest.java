@@ -0,0 +1,216 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Executor;
+
+public class PlayerRosterTest {
+
+    private static final int PLAYING = GameStates.PLAYER_STATE_PLAYING;
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private LoopbackReceiver mReceiver;
+    private PlayerRoster mRoster;
+
+    @Before
+    public void setUp() {
+        mReceiver = new LoopbackReceiver(DIRECT_EXECUTOR);
+        mRoster = new PlayerRoster();
+    }
+
+    @Test
+    public void resetTakesPlayingPlayersFromTheTransport() throws Exception {
+        LoopbackGameTransport first = joinReady();
+        LoopbackGameTransport available = join();
+        LoopbackGameTransport me = joinReady();
+        me.sendPlayerPlayingRequest(null, null);
+        mRoster.reset(me);
+
+        assertTrue(mRoster.isInitialized());
+        assertEquals(2, mRoster.getPlayingCount());
+        assertEquals(first.getLastUsedPlayerId(), mRoster.getPlayerIdInTurn(0));
+        assertEquals(me.getLastUsedPlayerId(), mRoster.getPlayerIdInTurn(1));
+        assertEquals(1, mRoster.getMyTurnIndex());
+        assertTrue(mRoster.isConnected(available.getLastUsedPlayerId()));
+    }
+
+    @Test
+    public void joinAndLeaveKeepTheOrder() throws Exception {
+        LoopbackGameTransport me = joinReady();
+        me.sendPlayerPlayingRequest(null, null);
+        String myPlayerId = me.getLastUsedPlayerId();
+        mRoster.reset(me);
+
+        assertTrue(mRoster.onPlayerStateChanged("z", PLAYING));
+        assertTrue(mRoster.onPlayerStateChanged("a", PLAYING));
+        assertFalse(mRoster.onPlayerStateChanged("a", PLAYING));
+        assertEquals("a", mRoster.getPlayerIdInTurn(0));
+        assertEquals(myPlayerId, mRoster.getPlayerIdInTurn(1));
+        assertEquals("z", mRoster.getPlayerIdInTurn(2));
+        assertEquals(1, mRoster.getMyTurnIndex());
+
+        assertTrue(mRoster.onPlayerStateChanged("a", GameStates.PLAYER_STATE_QUIT));
+        assertFalse(mRoster.onPlayerStateChanged("a", GameStates.PLAYER_STATE_DROPPED));
+        assertEquals(2, mRoster.getPlayingCount());
+        assertEquals(myPlayerId, mRoster.getPlayerIdInTurn(0));
+        assertEquals(0, mRoster.getMyTurnIndex());
+        assertFalse(mRoster.isConnected("a"));
+    }
+
+    @Test
+    public void turnOrderGrowsPastInitialCapacity() {
+        mRoster.reset(mReceiver.connect());
+        for (int i = 99; i >= 0; i--) {
+            mRoster.onPlayerStateChanged(String.format("p%03d", i), PLAYING);
+        }
+        assertEquals(100, mRoster.getPlayingCount());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(String.format("p%03d", i), mRoster.getPlayerIdInTurn(i));
+        }
+    }
+
+    @Test
+    public void turnAdvancesAcrossRemovedPlayers() throws Exception {
+        LoopbackGameTransport first = joinReady();
+        LoopbackGameTransport second = joinReady();
+        LoopbackGameTransport me = joinReady();
+        me.sendPlayerPlayingRequest(null, null);
+        mRoster.reset(me);
+
+        assertFalse(mRoster.isMyTurn(0));
+        assertFalse(mRoster.isMyTurn(1));
+        assertTrue(mRoster.isMyTurn(2));
+
+        // Once the second player leaves, the local player is second of two and draws every odd
+        // turn.
+        leave(second, me);
+        assertTrue(mRoster.isMyTurn(3));
+        assertFalse(mRoster.isMyTurn(4));
+
+        // Alone in the game, the local player always draws.
+        leave(first, me);
+        assertEquals(0, mRoster.getMyTurnIndex());
+        assertTrue(mRoster.isMyTurn(4));
+    }
+
+    @Test
+    public void notPlayingLocalPlayerHasNoTurn() throws Exception {
+        LoopbackGameTransport first = joinReady();
+        joinReady();
+        LoopbackGameTransport me = join();
+        first.sendPlayerPlayingRequest(null, null);
+        mRoster.reset(me);
+
+        assertEquals(2, mRoster.getPlayingCount());
+        assertEquals(-1, mRoster.getMyTurnIndex());
+        assertFalse(mRoster.isMyTurn(0));
+        assertFalse(mRoster.isMyTurn(1));
+    }
+
+    @Test
+    public void guessesAreCountedOncePerTurn() {
+        mRoster.reset(mReceiver.connect());
+        assertTrue(mRoster.recordGuess("a", true));
+        assertFalse(mRoster.recordGuess("a", false));
+        assertTrue(mRoster.recordGuess("b", false));
+        assertEquals(2, mRoster.getGuessCount());
+        assertEquals(1, mRoster.getCorrectGuessCount());
+
+        mRoster.startTurn();
+        assertEquals(0, mRoster.getGuessCount());
+        assertTrue(mRoster.recordGuess("a", false));
+        assertEquals(0, mRoster.getCorrectGuessCount());
+    }
+
+    @Test
+    public void guessesOfManyPlayersAreCounted() {
+        mRoster.reset(mReceiver.connect());
+        for (int i = 0; i < 100; i++) {
+            mRoster.onPlayerStateChanged("p" + i, PLAYING);
+            assertTrue(mRoster.recordGuess("p" + i, i % 3 == 0));
+        }
+        assertEquals(100, mRoster.getGuessCount());
+        assertEquals(34, mRoster.getCorrectGuessCount());
+        assertFalse(mRoster.recordGuess("p99", true));
+    }
+
+    @Test
+    public void guessOfPlayerWhoLeftStillCounts() {
+        mRoster.reset(mReceiver.connect());
+        mRoster.onPlayerStateChanged("a", PLAYING);
+        mRoster.recordGuess("a", true);
+        mRoster.onPlayerStateChanged("a", GameStates.PLAYER_STATE_QUIT);
+
+        assertEquals(1, mRoster.getCorrectGuessCount());
+        assertFalse(mRoster.recordGuess("a", true));
+    }
+
+    @Test
+    public void resetForgetsThePreviousSession() throws Exception {
+        LoopbackGameTransport me = joinReady();
+        LoopbackGameTransport other = joinReady();
+        me.sendPlayerPlayingRequest(null, null);
+        mRoster.reset(me);
+        mRoster.recordGuess(other.getLastUsedPlayerId(), true);
+
+        // A new receiver hands out the same player IDs, in a new session.
+        mReceiver = new LoopbackReceiver(DIRECT_EXECUTOR);
+        LoopbackGameTransport next = joinReady();
+        next.sendPlayerPlayingRequest(null, null);
+        mRoster.reset(next);
+
+        assertEquals(1, mRoster.getPlayingCount());
+        assertEquals(next.getLastUsedPlayerId(), mRoster.getPlayerIdInTurn(0));
+        assertEquals(0, mRoster.getMyTurnIndex());
+        assertEquals(0, mRoster.getGuessCount());
+        assertFalse(mRoster.isConnected(other.getLastUsedPlayerId()));
+    }
+
+    private LoopbackGameTransport join() {
+        LoopbackGameTransport transport = mReceiver.connect();
+        transport.sendPlayerAvailableRequest(null, null);
+        return transport;
+    }
+
+    private LoopbackGameTransport joinReady() throws Exception {
+        LoopbackGameTransport transport = join();
+        JSONObject extraMessageData = new JSONObject();
+        extraMessageData.put(ReceiverGame.EXTRA_NAME, transport.getLastUsedPlayerId());
+        transport.sendPlayerReadyRequest(extraMessageData, null);
+        return transport;
+    }
+
+    /**
+     * Disconnects a player and applies its new state as seen by the local player.
+     */
+    private void leave(LoopbackGameTransport transport, LoopbackGameTransport me) {
+        String playerId = transport.getLastUsedPlayerId();
+        transport.dispose();
+        mRoster.onPlayerStateChanged(playerId, me.getPlayerState(playerId));
+    }
+}
@@ -0,0 +1,188 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the receiver game logic end to end, through loopback transports.
+ */
+public class ReceiverGameTest {
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private LoopbackReceiver mReceiver;
+
+    @Before
+    public void setUp() {
+        mReceiver = new LoopbackReceiver(DIRECT_EXECUTOR);
+    }
+
+    @Test
+    public void startOpensTheLobby() {
+        GameTransport transport = mReceiver.connect();
+        assertEquals(GameStates.LOBBY_STATE_OPEN, transport.getLobbyState());
+        assertEquals(GameStates.GAMEPLAY_STATE_SHOWING_INFO_SCREEN,
+                transport.getGameplayState());
+        synchronized (mReceiver.getLock()) {
+            assertEquals("Lobby", mReceiver.getGame().getTitle());
+        }
+    }
+
+    @Test
+    public void readyRequiresAnAvailablePlayer() {
+        GameTransport transport = mReceiver.connect();
+        EventRecorder recorder = new EventRecorder();
+        transport.sendPlayerReadyRequest(null, recorder);
+        assertEquals(Collections.singletonList("failed Unknown player player1"),
+                recorder.mEvents);
+    }
+
+    @Test
+    public void playingPromotesReadyPlayersAndClosesTheLobby() throws Exception {
+        GameTransport first = joinReady("Ann");
+        GameTransport second = joinReady("Bob");
+        GameTransport available = join();
+        first.sendPlayerPlayingRequest(null, null);
+
+        assertEquals(GameStates.PLAYER_STATE_PLAYING, first.getPlayerState("player2"));
+        assertEquals(GameStates.PLAYER_STATE_AVAILABLE, first.getPlayerState("player3"));
+        assertEquals(GameStates.LOBBY_STATE_CLOSED, second.getLobbyState());
+        assertEquals(GameStates.GAMEPLAY_STATE_RUNNING, second.getGameplayState());
+        synchronized (mReceiver.getLock()) {
+            assertEquals("Playing", mReceiver.getGame().getTitle());
+            assertEquals("Ann is playing.", mReceiver.getGame().getInfo());
+        }
+
+        // Once the game runs, late players can no longer get ready.
+        EventRecorder recorder = new EventRecorder();
+        available.sendPlayerReadyRequest(null, recorder);
+        assertEquals(Collections.singletonList("failed The lobby is closed"), recorder.mEvents);
+    }
+
+    @Test
+    public void guessOfTheFirstWordIsForwarded() throws Exception {
+        GameTransport artist = joinReady("Ann");
+        GameTransport guesser = joinReady("Bob");
+        artist.sendPlayerPlayingRequest(null, null);
+        EventRecorder recorder = new EventRecorder();
+        artist.setListener(recorder);
+
+        // game.js drops a guess of index 0, the port forwards it to every connected player.
+        guesser.sendGameMessage(GameMessages.newGuessMessage(0));
+        assertEquals(Collections.singletonList("message player2 {\"guess\":0}"),
+                recorder.mEvents);
+    }
+
+    @Test
+    public void wordsAreReplayedToLatePlayers() throws Exception {
+        GameTransport artist = joinReady("Ann");
+        artist.sendPlayerPlayingRequest(null, null);
+        JSONObject words = GameMessages.newTurnMessage(1, Arrays.asList("cat", "dog"), 1);
+        artist.sendGameMessage(words);
+
+        GameTransport late = join();
+        EventRecorder recorder = new EventRecorder();
+        late.setListener(recorder);
+        late.sendGameMessage(GameMessages.newPlayerMessage("player2"));
+        assertEquals(Collections.singletonList("message player1 " + words), recorder.mEvents);
+    }
+
+    @Test
+    public void gridMessagesDrawUntilCleared() throws Exception {
+        GameTransport artist = joinReady("Ann");
+        artist.sendPlayerPlayingRequest(null, null);
+        artist.sendGameMessage(GameMessages.newGridMessage(2, 3));
+        artist.sendGameMessage(GameMessages.newGridMessage(4, 5));
+        synchronized (mReceiver.getLock()) {
+            assertTrue(mReceiver.getGame().isCellDrawn(GameMessages.getGridCell(2, 3)));
+            assertEquals(2, mReceiver.getGame().getDrawnCellCount());
+        }
+
+        artist.sendGameMessage(GameMessages.newClearMessage());
+        synchronized (mReceiver.getLock()) {
+            assertEquals(0, mReceiver.getGame().getDrawnCellCount());
+        }
+    }
+
+    @Test
+    public void messagesOfPlayersWhoLeftAreIgnored() throws Exception {
+        GameTransport artist = joinReady("Ann");
+        GameTransport other = joinReady("Bob");
+        artist.sendPlayerPlayingRequest(null, null);
+        artist.dispose();
+
+        // The transport drops messages once disposed, so go through the receiver directly.
+        synchronized (mReceiver.getLock()) {
+            mReceiver.getGame().onGameMessage("player1", GameMessages.newGridMessage(1, 1));
+            assertEquals(0, mReceiver.getGame().getDrawnCellCount());
+        }
+        assertEquals(GameStates.PLAYER_STATE_QUIT, other.getPlayerState("player1"));
+    }
+
+    @Test
+    public void gameResetsWhenNobodyIsActive() throws Exception {
+        GameTransport artist = joinReady("Ann");
+        GameTransport guesser = joinReady("Bob");
+        artist.sendPlayerPlayingRequest(null, null);
+        artist.sendGameMessage(GameMessages.newTurnMessage(1, Arrays.asList("cat"), 0));
+        artist.sendGameMessage(GameMessages.newGridMessage(1, 1));
+        artist.dispose();
+        guesser.dispose();
+
+        GameTransport next = join();
+        assertEquals(Collections.singletonList("player3"), next.getPlayerIds());
+        assertEquals(GameStates.LOBBY_STATE_OPEN, next.getLobbyState());
+        assertEquals(GameStates.GAMEPLAY_STATE_SHOWING_INFO_SCREEN, next.getGameplayState());
+        synchronized (mReceiver.getLock()) {
+            assertEquals(0, mReceiver.getGame().getDrawnCellCount());
+            assertEquals("", mReceiver.getGame().getInfo());
+        }
+
+        // The words of the previous game are not replayed.
+        EventRecorder recorder = new EventRecorder();
+        next.setListener(recorder);
+        next.sendGameMessage(GameMessages.newPlayerMessage("player3"));
+        assertTrue(recorder.mEvents.isEmpty());
+        assertFalse(next.getPlayerIds().contains("player1"));
+    }
+
+    private GameTransport join() {
+        GameTransport transport = mReceiver.connect();
+        transport.sendPlayerAvailableRequest(null, null);
+        return transport;
+    }
+
+    private GameTransport joinReady(String name) throws Exception {
+        GameTransport transport = join();
+        transport.sendPlayerReadyRequest(new JSONObject().put(ReceiverGame.EXTRA_NAME, name),
+                null);
+        return transport;
+    }
+}
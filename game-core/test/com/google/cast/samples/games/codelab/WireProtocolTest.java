@@ -0,0 +1,153 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+public class WireProtocolTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void encodePrefixesTheLength() throws Exception {
+        JSONObject frame = WireProtocol.newFrame(WireProtocol.TYPE_GAME_MESSAGE);
+        ByteBuffer buffer = WireProtocol.encode(frame);
+        byte[] payload = frame.toString().getBytes(UTF_8);
+
+        assertEquals(WireProtocol.HEADER_SIZE + payload.length, buffer.remaining());
+        assertEquals(payload.length, buffer.getInt(0));
+    }
+
+    @Test
+    public void roundTripThroughBuffer() throws Exception {
+        JSONObject frame = newGameMessage("p1", "h\u00e9llo");
+        ByteBuffer buffer = WireProtocol.encode(frame);
+
+        JSONObject decoded = WireProtocol.decode(buffer);
+        assertEquals(frame.toString(), decoded.toString());
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    public void roundTripThroughStream() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WireProtocol.writeFrame(out, newGameMessage("p1", "first"));
+        WireProtocol.writeFrame(out, newGameMessage("p2", "second"));
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+
+        JSONObject first = WireProtocol.readFrame(in);
+        JSONObject second = WireProtocol.readFrame(in);
+        assertEquals("p1", first.getString(WireProtocol.KEY_PLAYER_ID));
+        assertEquals("second", second.getJSONObject(WireProtocol.KEY_MESSAGE).getString("text"));
+        try {
+            WireProtocol.readFrame(in);
+            fail();
+        } catch (EOFException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void partialFramesAreNotConsumed() throws Exception {
+        byte[] bytes = toBytes(WireProtocol.encode(newGameMessage("p1", "partial")));
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length * 2);
+
+        // Feed the frame a few bytes at a time, as a non-blocking read would.
+        JSONObject decoded = null;
+        for (int offset = 0; offset < bytes.length; offset += 3) {
+            buffer.put(bytes, offset, Math.min(3, bytes.length - offset));
+            buffer.flip();
+            decoded = WireProtocol.decode(buffer);
+            if (decoded == null) {
+                assertEquals(0, buffer.position());
+            }
+            buffer.compact();
+        }
+        assertEquals("partial", decoded.getJSONObject(WireProtocol.KEY_MESSAGE).getString("text"));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void decodesConsecutiveFrames() throws Exception {
+        byte[] first = toBytes(WireProtocol.encode(newGameMessage("p1", "a")));
+        byte[] second = toBytes(WireProtocol.encode(newGameMessage("p2", "b")));
+        ByteBuffer buffer = ByteBuffer.allocate(first.length + second.length);
+        buffer.put(first).put(second, 0, second.length - 1);
+        buffer.flip();
+
+        assertEquals("p1", WireProtocol.decode(buffer).getString(WireProtocol.KEY_PLAYER_ID));
+        assertNull(WireProtocol.decode(buffer));
+        assertEquals(second.length - 1, buffer.remaining());
+    }
+
+    @Test(expected = IOException.class)
+    public void encodeRejectsOversizeFrames() throws Exception {
+        WireProtocol.encode(newGameMessage("p1", repeat('x', WireProtocol.MAX_FRAME_SIZE)));
+    }
+
+    @Test(expected = IOException.class)
+    public void decodeRejectsOversizeLength() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(WireProtocol.HEADER_SIZE);
+        buffer.putInt(WireProtocol.MAX_FRAME_SIZE + 1).flip();
+        WireProtocol.decode(buffer);
+    }
+
+    @Test(expected = IOException.class)
+    public void readFrameRejectsNegativeLength() throws Exception {
+        byte[] header = {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff};
+        WireProtocol.readFrame(new DataInputStream(new ByteArrayInputStream(header)));
+    }
+
+    @Test(expected = IOException.class)
+    public void decodeRejectsInvalidJson() throws Exception {
+        byte[] payload = "not json".getBytes(UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(WireProtocol.HEADER_SIZE + payload.length);
+        buffer.putInt(payload.length).put(payload).flip();
+        WireProtocol.decode(buffer);
+    }
+
+    private static JSONObject newGameMessage(String playerId, String text) throws Exception {
+        JSONObject frame = WireProtocol.newFrame(WireProtocol.TYPE_GAME_MESSAGE);
+        frame.put(WireProtocol.KEY_PLAYER_ID, playerId);
+        frame.put(WireProtocol.KEY_MESSAGE, new JSONObject().put("text", text));
+        return frame;
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+}
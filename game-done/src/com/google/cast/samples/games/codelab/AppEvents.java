@@ -0,0 +1,54 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+/**
+ * The event log of the sender app, used instead of {@code Log.d} on the touch and message paths,
+ * and its event types. The events are shown by {@link MetricsActivity}, and written out by the
+ * {@link FlightRecorder} when a session dies.
+ */
+public final class AppEvents {
+
+    private static final int CAPACITY = 4096;
+
+    public static final EventLog LOG = new EventLog(CAPACITY);
+
+    public static final int TOUCH = LOG.defineType("touch", "x=%d y=%d");
+    public static final int DRAW_EVENT = LOG.defineType("drawEvent", "x=%d y=%d color=%d");
+    public static final int GUESS_RECEIVED = LOG.defineType("guessReceived",
+            "guess=%d correct=%d");
+    public static final int TURN_RECEIVED = LOG.defineType("turnReceived",
+            "turn=%d words=%d index=%d");
+    public static final int OTHER_MESSAGE_RECEIVED = LOG.defineType("otherMessageReceived", "");
+    public static final int GUESS_MADE = LOG.defineType("guessMade", "guess=%d correct=%d");
+
+    // Recorded for the FlightRecorder. Sent messages are measured in characters of their JSON
+    // text, received ones, which arrive parsed, only by their number of top-level keys.
+    public static final int MESSAGE_SENT = LOG.defineType("messageSent", "jsonChars=%d");
+    public static final int MESSAGE_RECEIVED = LOG.defineType("messageReceived",
+            "jsonKeys=%d");
+    public static final int GAME_STATE = LOG.defineType("gameState",
+            "lobby=%d gameplay=%d players=%d");
+    public static final int REQUEST_FAILED = LOG.defineType("requestFailed", "status=%d");
+    public static final int CONNECTION_STATE = LOG.defineType("connectionState", "state=%d");
+    public static final int CONNECTION_PHASE = LOG.defineType("connectionPhase",
+            "phase=%d micros=%d");
+    public static final int DISCONNECTED = LOG.defineType("disconnected", "cause=%d");
+    public static final int RENDER_STALL = LOG.defineType("renderStall", "micros=%d");
+    public static final int ERROR_DIALOG = LOG.defineType("errorDialog", "");
+    public static final int MAIN_THREAD_STALL = LOG.defineType("mainThreadStall", "micros=%d");
+
+    private AppEvents() {
+    }
+}
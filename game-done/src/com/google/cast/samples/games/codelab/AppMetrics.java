@@ -0,0 +1,98 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The metrics of the sender app. They live for the whole process, so that they survive the
+ * fragments and activities that update them, and can be read from {@link MetricsActivity}.
+ */
+public final class AppMetrics {
+
+    public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    // Game messages
+    public static final AtomicLong MESSAGES_SENT = REGISTRY.getCounter("messagesSent");
+    public static final AtomicLong MESSAGES_RECEIVED = REGISTRY.getCounter("messagesReceived");
+    public static final LatencyHistogram MESSAGE_SEND = REGISTRY.getHistogram("messageSend");
+    public static final LatencyHistogram MESSAGE_RECEIVE =
+            REGISTRY.getHistogram("messageReceive");
+
+    // Redundant UI work avoided: notifications folded into an already scheduled frame, and
+    // fragment transactions that would have shown the fragment already in place
+    public static final AtomicLong NOTIFICATIONS_COALESCED =
+            REGISTRY.getCounter("notificationsCoalesced");
+    public static final AtomicLong FRAGMENT_TRANSACTIONS_SKIPPED =
+            REGISTRY.getCounter("fragmentTransactionsSkipped");
+
+    // Drawing
+    public static final AtomicLong DRAW_VIEW_FRAMES = REGISTRY.getCounter("drawViewFrames");
+    public static final AtomicLong DRAW_VIEW_TOUCHES = REGISTRY.getCounter("drawViewTouches");
+    public static final LatencyHistogram DRAW_VIEW_ON_DRAW =
+            REGISTRY.getHistogram("drawViewOnDraw");
+    public static final LatencyHistogram DRAW_VIEW_ON_TOUCH =
+            REGISTRY.getHistogram("drawViewOnTouch");
+
+    // From the player starting to play to the first frame of the DrawView, with the drawing screen
+    // prepared in the lobby or inflated when switching to it
+    public static final LatencyHistogram FIRST_FRAME_PRELOADED =
+            REGISTRY.getHistogram("playingToFirstFrame.preloaded");
+    public static final LatencyHistogram FIRST_FRAME_INFLATED =
+            REGISTRY.getHistogram("playingToFirstFrame.inflated");
+
+    // Startup of the main activity, from the start of onCreate to its end, to the first frame
+    // and to the cast connection manager being created and scanning
+    public static final LatencyHistogram STARTUP_CREATE = REGISTRY.getHistogram("startup.create");
+    public static final LatencyHistogram STARTUP_FIRST_FRAME =
+            REGISTRY.getHistogram("startup.firstFrame");
+    public static final LatencyHistogram STARTUP_CAST_READY =
+            REGISTRY.getHistogram("startup.castReady");
+
+    // Frame timings, recorded by the FrameTimingRecorder when enabled
+    public static final AtomicLong FRAMES = REGISTRY.getCounter("frames");
+    public static final AtomicLong JANKY_FRAMES = REGISTRY.getCounter("jankyFrames");
+    public static final LatencyHistogram FRAME_INTERVAL = REGISTRY.getHistogram("frameInterval");
+    public static final LatencyHistogram TOUCH_TO_FRAME = REGISTRY.getHistogram("touchToFrame");
+
+    // Main looper messages, measured by the StallWatchdog
+    public static final AtomicLong LOOPER_MESSAGES = REGISTRY.getCounter("looperMessages");
+    public static final AtomicLong LOOPER_STALLS = REGISTRY.getCounter("looperStalls");
+    // Stalls in messages that no callback was named for
+    public static final AtomicLong OTHER_STALLS = REGISTRY.getCounter("stalls.other");
+    public static final LatencyHistogram LOOPER_MESSAGE = REGISTRY.getHistogram("looperMessage");
+
+    // Cast connection callbacks
+    public static final AtomicLong ROUTE_SELECTED = REGISTRY.getCounter("routeSelected");
+    public static final AtomicLong ROUTE_UNSELECTED = REGISTRY.getCounter("routeUnselected");
+    public static final AtomicLong API_CLIENT_CONNECTED =
+            REGISTRY.getCounter("apiClientConnected");
+    public static final AtomicLong API_CLIENT_SUSPENDED =
+            REGISTRY.getCounter("apiClientSuspended");
+    public static final AtomicLong API_CLIENT_FAILED = REGISTRY.getCounter("apiClientFailed");
+    public static final AtomicLong APPLICATION_LAUNCHED =
+            REGISTRY.getCounter("applicationLaunched");
+    public static final AtomicLong APPLICATION_LAUNCH_FAILED =
+            REGISTRY.getCounter("applicationLaunchFailed");
+    public static final AtomicLong APPLICATION_DISCONNECTED =
+            REGISTRY.getCounter("applicationDisconnected");
+    public static final AtomicLong GAME_MANAGER_CLIENT_READY =
+            REGISTRY.getCounter("gameManagerClientReady");
+    public static final AtomicLong GAME_MANAGER_CLIENT_FAILED =
+            REGISTRY.getCounter("gameManagerClientFailed");
+    public static final AtomicLong RECONNECT_ATTEMPTS = REGISTRY.getCounter("reconnectAttempts");
+
+    private AppMetrics() {
+    }
+}
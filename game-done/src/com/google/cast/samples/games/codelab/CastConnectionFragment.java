@@ -13,12 +13,13 @@
 // limitations under the License.
 package com.google.cast.samples.games.codelab;
 
+import com.google.android.gms.cast.CastDevice;
+
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-
-import java.util.Observable;
+import android.widget.TextView;
 
 /**
  * A fragment displayed while this application is not yet connected to a cast device.
@@ -27,21 +28,42 @@ public class CastConnectionFragment extends GameFragment {
 
     public static final String TAG = "CastConnectionFragment";
 
-    private View mConnectLabel;
+    private TextView mConnectLabel;
     private View mSpinner;
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
             Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.cast_connection_fragment, container, false);
-        mConnectLabel = view.findViewById(R.id.connect_label);
+        mConnectLabel = (TextView) view.findViewById(R.id.connect_label);
         mSpinner = view.findViewById(R.id.spinner);
         return view;
     }
 
     @Override
-    public void update(Observable object, Object data) {
-        if (getView() == null) {
+    public void onResume() {
+        super.onResume();
+        updateView();
+    }
+
+    @Override
+    public void setCastConnectionManager(CastConnectionManager castConnectionManager) {
+        super.setCastConnectionManager(castConnectionManager);
+        updateView();
+    }
+
+    @Override
+    public void onRouteSelected(CastDevice device) {
+        updateView();
+    }
+
+    @Override
+    public void onDisconnected(int cause) {
+        updateView();
+    }
+
+    private void updateView() {
+        if (getView() == null || mCastConnectionManager == null) {
             return;
         }
         // Once the user has selected a Cast device, show a progress indicator.
@@ -50,6 +72,13 @@ public class CastConnectionFragment extends GameFragment {
             mConnectLabel.setVisibility(View.GONE);
             mSpinner.setVisibility(View.VISIBLE);
         } else {
+            // Name the device used last so that it can be picked again right away.
+            String lastRouteName = mCastConnectionManager.getLastKnownRouteName();
+            if (lastRouteName != null) {
+                mConnectLabel.setText(getString(R.string.connect_label_last_device, lastRouteName));
+            } else {
+                mConnectLabel.setText(R.string.connect_label);
+            }
             mConnectLabel.setVisibility(View.VISIBLE);
             mSpinner.setVisibility(View.GONE);
         }
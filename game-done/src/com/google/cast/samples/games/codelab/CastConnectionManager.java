@@ -18,6 +18,7 @@ import com.google.android.gms.cast.Cast;
 import com.google.android.gms.cast.Cast.ApplicationConnectionResult;
 import com.google.android.gms.cast.CastDevice;
 import com.google.android.gms.cast.CastMediaControlIntent;
+import com.google.android.gms.cast.CastStatusCodes;
 import com.google.android.gms.cast.games.GameManagerClient;
 import com.google.android.gms.cast.games.GameManagerClient.GameManagerInstanceResult;
 import com.google.android.gms.common.ConnectionResult;
@@ -25,40 +26,158 @@ import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.common.api.ResultCallback;
 import com.google.android.gms.common.api.Status;
 
+import org.json.JSONObject;
+
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.v7.media.MediaRouteSelector;
 import android.support.v7.media.MediaRouter;
 import android.support.v7.media.MediaRouter.RouteInfo;
+import android.os.SystemClock;
 import android.util.Log;
 
-import java.util.Observable;
+import java.util.ArrayDeque;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Abstracts all the logic needed to establish a connection to a cast device and get the
- * GameManagerClient initialized.
+ * GameManagerClient initialized, wrapped in a {@link GameTransport}.
  */
-public class CastConnectionManager extends Observable {
+public class CastConnectionManager {
 
     private static final String TAG = "CastConnectionManager";
 
+    // Preferences used to resume the last session after a connection loss or a process restart
+    private static final String PREFS_NAME = "CastConnectionManager";
+    private static final String PREF_ROUTE_ID = "route_id";
+    private static final String PREF_SESSION_ID = "session_id";
+    private static final String PREF_ROUTE_NAME = "route_name";
+
+    // Discovery modes, picked from the connection state while scanning is requested
+    public static final int SCAN_MODE_OFF = 0;
+    public static final int SCAN_MODE_PASSIVE = 1;
+    public static final int SCAN_MODE_ACTIVE = 2;
+
+    // Connection states
+    public static final int STATE_IDLE = 0;
+    public static final int STATE_CONNECTING = 1;
+    public static final int STATE_LAUNCHING = 2;
+    public static final int STATE_CONNECTED = 3;
+    public static final int STATE_RECONNECTING = 4;
+
+    // Reconnection backoff: the delay doubles from the base delay up to the max delay, and a
+    // random half of it is added so that senders dropped together don't retry together.
+    private static final int MAX_RECONNECT_ATTEMPTS = 5;
+    private static final long RECONNECT_BASE_DELAY_MS = 500;
+    private static final long RECONNECT_MAX_DELAY_MS = 8000;
+
+    // Game messages sent while reconnecting are kept for this long, up to this many
+    private static final long PENDING_MESSAGE_WINDOW_MS = 10000;
+    private static final int MAX_PENDING_MESSAGES = 64;
+
+    // Reasons passed to ConnectionListener#onDisconnected
+    public static final int DISCONNECT_CAUSE_REQUESTED = 1;
+    public static final int DISCONNECT_CAUSE_ROUTE_UNSELECTED = 2;
+    public static final int DISCONNECT_CAUSE_ROUTE_CHANGED = 3;
+    public static final int DISCONNECT_CAUSE_CONNECTION_SUSPENDED = 4;
+    public static final int DISCONNECT_CAUSE_CONNECTION_FAILED = 5;
+    public static final int DISCONNECT_CAUSE_APPLICATION_DISCONNECTED = 6;
+    public static final int DISCONNECT_CAUSE_LAUNCH_FAILED = 7;
+    public static final int DISCONNECT_CAUSE_GAME_MANAGER_FAILED = 8;
+    public static final int DISCONNECT_CAUSE_ERROR = 9;
+
+    /**
+     * Receives the phases of the connection to the receiver, in order. Callbacks are always
+     * delivered on the main thread.
+     */
+    public interface ConnectionListener {
+
+        /**
+         * The user selected a cast device. The connection to it is starting.
+         */
+        void onRouteSelected(CastDevice device);
+
+        /**
+         * The Google API client connected to the device.
+         */
+        void onApiClientConnected();
+
+        /**
+         * The receiver application was launched or joined.
+         */
+        void onApplicationLaunched(String sessionId);
+
+        /**
+         * The GameManagerClient is ready to be used through the transport. This is the last
+         * phase of a connection.
+         */
+        void onGameTransportReady(GameTransport transport);
+
+        /**
+         * The connection was torn down, at any phase.
+         *
+         * @param cause one of the DISCONNECT_CAUSE_* constants.
+         */
+        void onDisconnected(int cause);
+    }
+
     private final Context mContext;
     private final String mAppId;
     private final MediaRouter mMediaRouter;
     private final MediaRouteSelector mMediaRouteSelector;
     private final MediaRouter.Callback mMediaRouteCallback;
+    private final SharedPreferences mPreferences;
     private CastDevice mSelectedDevice;
 
     private GoogleApiClient mApiClient;
+    // Incremented whenever a connection attempt starts or is torn down, so that the callbacks of
+    // older attempts can be told apart and ignored
+    private int mConnectionGeneration = 0;
 
     private String mCastSessionId;
-    private GameManagerClient mGameManagerClient;
+    private GameTransport mGameTransport;
+
+    // Copy on write, so that dispatching never locks and listeners may unregister themselves
+    private final CopyOnWriteArrayList<ConnectionListener> mListeners =
+            new CopyOnWriteArrayList<>();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private int mState = STATE_IDLE;
+
+    // True between startScan and stopScan
+    private boolean mScanRequested = false;
+    private int mScanMode = SCAN_MODE_OFF;
+
+    // The route of the persisted session, kept as soon as the media router reports it
+    private RouteInfo mLastKnownRoute;
+    private int mReconnectAttempts = 0;
+    // True while reconnecting after the link to the receiver application was lost: the session
+    // is joined if it is still running, but the application is never launched again
+    private boolean mRejoinOnly = false;
+    private final Random mRandom = new Random();
+    private final Runnable mReconnectRunnable = new Runnable() {
+        @Override
+        public void run() {
+            reconnect();
+        }
+    };
+
+    // Times every phase of the connections made by this manager
+    private final ConnectionTimings mConnectionTimings = new ConnectionTimings();
+
+    // Outbound game messages waiting for a reconnection, oldest first
+    private final ArrayDeque<PendingMessage> mPendingMessages = new ArrayDeque<>();
 
     public CastConnectionManager(Context context, String appId) {
         mContext = context;
         mAppId = appId;
 
         mMediaRouter = MediaRouter.getInstance(context);
+        mPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
 
         mMediaRouteSelector = new MediaRouteSelector.Builder().addControlCategory(
                 CastMediaControlIntent.categoryForCast(mAppId)).build();
@@ -68,21 +187,72 @@ public class CastConnectionManager extends Observable {
     }
 
     /**
-     * Returns the GameManagerClient instance, if already connected to the receiver, or null if
-     * not.
+     * Registers a listener for connection events. Has no effect if it is already registered.
+     */
+    public void addConnectionListener(ConnectionListener listener) {
+        mListeners.addIfAbsent(listener);
+    }
+
+    /**
+     * Unregisters a listener added with {@link #addConnectionListener}.
+     */
+    public void removeConnectionListener(ConnectionListener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * Returns the transport to the game, if already connected to the receiver, or null if not.
      *
      * @see #isConnectedToReceiver
      */
-    public GameManagerClient getGameManagerClient() {
-        return mGameManagerClient;
+    public GameTransport getGameTransport() {
+        return mGameTransport;
     }
 
     /**
-     * Returns true if there is an active connection to the receiver and the GameManagerClient is
-     * ready to be used.
+     * Returns true if there is an active connection to the receiver and the transport is ready to
+     * be used.
      */
     public boolean isConnectedToReceiver() {
-        return (getGameManagerClient() != null) && (!getGameManagerClient().isDisposed());
+        return (mGameTransport != null) && mGameTransport.isConnected();
+    }
+
+    /**
+     * Returns true while a lost connection is being retried. The connection is not usable but
+     * has not been reported as lost to the listeners yet.
+     */
+    public boolean isReconnecting() {
+        return mState == STATE_RECONNECTING
+                || (mReconnectAttempts > 0 && mState != STATE_IDLE && mState != STATE_CONNECTED);
+    }
+
+    /**
+     * Returns the timings of the connection phases, for all the connections made so far.
+     */
+    public ConnectionTimings getConnectionTimings() {
+        return mConnectionTimings;
+    }
+
+    /**
+     * Returns the current connection state, one of the STATE_* constants.
+     */
+    public int getConnectionState() {
+        return mState;
+    }
+
+    /**
+     * Sends a game message to the receiver. While reconnecting, the message is queued and sent
+     * once the connection is back, unless it gets too old.
+     */
+    public void sendGameMessage(JSONObject message) {
+        if (isConnectedToReceiver()) {
+            mGameTransport.sendGameMessage(message);
+        } else if (isReconnecting()) {
+            if (mPendingMessages.size() == MAX_PENDING_MESSAGES) {
+                mPendingMessages.removeFirst();
+            }
+            mPendingMessages.addLast(new PendingMessage(message, SystemClock.elapsedRealtime()));
+        }
     }
 
     /**
@@ -94,11 +264,19 @@ public class CastConnectionManager extends Observable {
 
     /**
      * Adds the callback to start device discovery. This method should be called from onResume of
-     * the main activity.
+     * the main activity. Discovery is active while no device is selected, and passive while
+     * connected, just enough to hear about the selected route going away.
      */
     public void startScan() {
-        mMediaRouter.addCallback(mMediaRouteSelector, mMediaRouteCallback,
-                MediaRouter.CALLBACK_FLAG_PERFORM_ACTIVE_SCAN);
+        mScanRequested = true;
+        updateScanMode();
+
+        // Reconnect to the route of the last session if it is already known, otherwise this
+        // happens when discovery adds it.
+        RouteInfo route = getLastKnownRoute();
+        if (route != null) {
+            maybeResumeRoute(route);
+        }
     }
 
     /**
@@ -106,7 +284,42 @@ public class CastConnectionManager extends Observable {
      * the main activity.
      */
     public void stopScan() {
-        mMediaRouter.removeCallback(mMediaRouteCallback);
+        mScanRequested = false;
+        updateScanMode();
+    }
+
+    /**
+     * Returns the current discovery mode, one of the SCAN_MODE_* constants.
+     */
+    public int getScanMode() {
+        return mScanMode;
+    }
+
+    /**
+     * Returns the route of the last session if the media router knows about it, or null.
+     */
+    public RouteInfo getLastKnownRoute() {
+        String routeId = mPreferences.getString(PREF_ROUTE_ID, null);
+        if (routeId == null) {
+            return null;
+        }
+        if (mLastKnownRoute == null || !routeId.equals(mLastKnownRoute.getId())) {
+            mLastKnownRoute = null;
+            for (RouteInfo route : mMediaRouter.getRoutes()) {
+                if (routeId.equals(route.getId())) {
+                    mLastKnownRoute = route;
+                    break;
+                }
+            }
+        }
+        return mLastKnownRoute;
+    }
+
+    /**
+     * Returns the name of the device used last, even if it has not been discovered yet, or null.
+     */
+    public String getLastKnownRouteName() {
+        return mPreferences.getString(PREF_ROUTE_NAME, null);
     }
 
     /**
@@ -116,6 +329,8 @@ public class CastConnectionManager extends Observable {
      *                                other senders connected.
      */
     public void disconnectFromReceiver(boolean stopReceiverApplication) {
+        // The user chose to leave, do not resume this session later.
+        forgetSession();
         if (isApiClientConnected() && (mCastSessionId != null)) {
             if (stopReceiverApplication) {
                 Cast.CastApi.stopApplication(mApiClient, mCastSessionId);
@@ -123,7 +338,7 @@ public class CastConnectionManager extends Observable {
                 Cast.CastApi.leaveApplication(mApiClient);
             }
         }
-        setSelectedDevice(null);
+        setSelectedDevice(null, DISCONNECT_CAUSE_REQUESTED);
     }
 
     /**
@@ -135,6 +350,7 @@ public class CastConnectionManager extends Observable {
     }
 
     private void connectApiClient() {
+        mConnectionGeneration++;
         Cast.CastOptions apiOptions = Cast.CastOptions.builder(mSelectedDevice, new CastListener())
                 .build();
         GoogleApiClientConnectionCallback callback = new GoogleApiClientConnectionCallback();
@@ -147,37 +363,334 @@ public class CastConnectionManager extends Observable {
     }
 
     private void disconnectApiClient() {
-        if (mGameManagerClient != null) {
-            mGameManagerClient.dispose();
-            mGameManagerClient = null;
+        mConnectionGeneration++;
+        if (mGameTransport != null) {
+            mGameTransport.dispose();
+            mGameTransport = null;
         }
         if (mApiClient != null && (mApiClient.isConnected() || mApiClient.isConnecting())) {
             mApiClient.disconnect();
         }
         mApiClient = null;
-        setChanged();
-        notifyObservers();
     }
 
-    private void setSelectedDevice(CastDevice device) {
+    /**
+     * Tears down the current connection, if any, and connects to the new device.
+     *
+     * @param device          the device to connect to, or null to only disconnect.
+     * @param disconnectCause the cause reported to listeners if a connection is torn down.
+     */
+    private void setSelectedDevice(CastDevice device, int disconnectCause) {
         Log.d(TAG, "setSelectedDevice: " + device);
+        boolean wasConnected = (mSelectedDevice != null) || (mApiClient != null);
         mSelectedDevice = device;
 
-        // This will notify observers, so no need to explicitly do it in this method.
+        cancelReconnect();
         disconnectApiClient();
+        setState((device == null) ? STATE_IDLE : STATE_CONNECTING);
+        if (wasConnected) {
+            dispatchDisconnected(disconnectCause);
+        }
 
         if (mSelectedDevice != null) {
+            mConnectionTimings.begin(false);
+            dispatchRouteSelected(mSelectedDevice);
             try {
                 connectApiClient();
             } catch (IllegalStateException e) {
                 Log.e(TAG, "Exception while connecting Google API client. ", e);
-                disconnectApiClient();
+                setSelectedDevice(null, DISCONNECT_CAUSE_ERROR);
             }
         } else {
+            mConnectionTimings.cancel();
             mMediaRouter.selectRoute(mMediaRouter.getDefaultRoute());
         }
     }
 
+    private void setState(int state) {
+        AppEvents.LOG.log(AppEvents.CONNECTION_STATE, state);
+        mState = state;
+        updateScanMode();
+    }
+
+    /**
+     * Switches discovery to the mode needed in the current connection state: active while
+     * looking for a device, passive once one is selected, off when not requested.
+     */
+    private void updateScanMode() {
+        int scanMode;
+        if (!mScanRequested) {
+            scanMode = SCAN_MODE_OFF;
+        } else if (mState == STATE_IDLE) {
+            scanMode = SCAN_MODE_ACTIVE;
+        } else {
+            scanMode = SCAN_MODE_PASSIVE;
+        }
+        if (scanMode == mScanMode) {
+            return;
+        }
+        Log.d(TAG, "Scan mode " + mScanMode + " -> " + scanMode);
+        mScanMode = scanMode;
+
+        // Flags of an existing callback can only be added to, so register it again.
+        mMediaRouter.removeCallback(mMediaRouteCallback);
+        if (scanMode == SCAN_MODE_ACTIVE) {
+            mMediaRouter.addCallback(mMediaRouteSelector, mMediaRouteCallback,
+                    MediaRouter.CALLBACK_FLAG_PERFORM_ACTIVE_SCAN);
+        } else if (scanMode == SCAN_MODE_PASSIVE) {
+            mMediaRouter.addCallback(mMediaRouteSelector, mMediaRouteCallback);
+        }
+    }
+
+    /**
+     * Handles the loss of the connection, or the failure to set it up. Transient failures are
+     * retried with a backoff while attempts are left, without telling the listeners; anything
+     * else tears the connection down.
+     *
+     * @param cause one of the DISCONNECT_CAUSE_* constants.
+     */
+    private void onConnectionLost(int cause) {
+        if (mSelectedDevice == null || !isTransient(cause)
+                || mReconnectAttempts >= MAX_RECONNECT_ATTEMPTS) {
+            setSelectedDevice(null, cause);
+            return;
+        }
+        disconnectApiClient();
+        mConnectionTimings.cancel();
+        setState(STATE_RECONNECTING);
+        long delay = getReconnectDelay(mReconnectAttempts);
+        mReconnectAttempts++;
+        Log.d(TAG, "Connection lost, cause " + cause + ". Reconnection attempt "
+                + mReconnectAttempts + " in " + delay + "ms");
+        mMainHandler.postDelayed(mReconnectRunnable, delay);
+    }
+
+    private boolean isTransient(int cause) {
+        switch (cause) {
+            case DISCONNECT_CAUSE_CONNECTION_SUSPENDED:
+            case DISCONNECT_CAUSE_CONNECTION_FAILED:
+                return true;
+            case DISCONNECT_CAUSE_APPLICATION_DISCONNECTED:
+                // Only reported as lost when the link to the application was lost.
+                return true;
+            case DISCONNECT_CAUSE_LAUNCH_FAILED:
+            case DISCONNECT_CAUSE_GAME_MANAGER_FAILED:
+                // Only worth retrying if the connection was up before.
+                return mReconnectAttempts > 0;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the delay before a reconnection attempt: exponential, capped and jittered.
+     */
+    private long getReconnectDelay(int attempt) {
+        long delay = Math.min(RECONNECT_MAX_DELAY_MS, RECONNECT_BASE_DELAY_MS << attempt);
+        return delay / 2 + (long) (mRandom.nextDouble() * (delay / 2));
+    }
+
+    private void reconnect() {
+        if (mState != STATE_RECONNECTING || mSelectedDevice == null) {
+            return;
+        }
+        setState(STATE_CONNECTING);
+        AppMetrics.RECONNECT_ATTEMPTS.incrementAndGet();
+        mConnectionTimings.begin(true);
+        try {
+            connectApiClient();
+        } catch (IllegalStateException e) {
+            Log.e(TAG, "Exception while reconnecting Google API client. ", e);
+            onConnectionLost(DISCONNECT_CAUSE_ERROR);
+        }
+    }
+
+    private void cancelReconnect() {
+        mMainHandler.removeCallbacks(mReconnectRunnable);
+        mReconnectAttempts = 0;
+        mRejoinOnly = false;
+        mPendingMessages.clear();
+    }
+
+    /**
+     * Sends the game messages queued while reconnecting, dropping the ones that are too old.
+     */
+    private void flushPendingMessages() {
+        long now = SystemClock.elapsedRealtime();
+        while (!mPendingMessages.isEmpty()) {
+            PendingMessage pendingMessage = mPendingMessages.removeFirst();
+            if (now - pendingMessage.mQueuedAtMs <= PENDING_MESSAGE_WINDOW_MS) {
+                mGameTransport.sendGameMessage(pendingMessage.mMessage);
+            }
+        }
+    }
+
+    /**
+     * Joins the session persisted by a previous connection, if any, so that the running game is
+     * reused. Falls back to launching the receiver application if there is none or if it cannot
+     * be joined, unless only rejoining.
+     */
+    private void launchOrJoinApplication() {
+        String sessionId = mPreferences.getString(PREF_SESSION_ID, null);
+        if (sessionId == null && mRejoinOnly) {
+            endStoppedApplication();
+        } else if (sessionId != null) {
+            Log.d(TAG, "Joining session " + sessionId);
+            Cast.CastApi.joinApplication(mApiClient, mAppId, sessionId)
+                    .setResultCallback(new LaunchReceiverApplicationResultCallback(true));
+        } else {
+            Cast.CastApi.launchApplication(mApiClient, mAppId)
+                    .setResultCallback(new LaunchReceiverApplicationResultCallback(false));
+        }
+    }
+
+    /**
+     * Selects the route if it is the one of the persisted session and nothing is selected yet.
+     *
+     * @return true if the route was selected.
+     */
+    private boolean maybeResumeRoute(RouteInfo route) {
+        if (mSelectedDevice != null || route.isDefault() || route.isSelected()
+                || !route.matchesSelector(mMediaRouteSelector)) {
+            return false;
+        }
+        if (mPreferences.getString(PREF_SESSION_ID, null) == null
+                || !route.getId().equals(mPreferences.getString(PREF_ROUTE_ID, null))) {
+            return false;
+        }
+        Log.d(TAG, "Resuming the last session on route " + route.getName());
+        mMediaRouter.selectRoute(route);
+        return true;
+    }
+
+    private void persistRoute(RouteInfo route) {
+        mLastKnownRoute = route;
+        if (!route.getId().equals(mPreferences.getString(PREF_ROUTE_ID, null))) {
+            // A session on another device cannot be joined from this one.
+            mPreferences.edit()
+                    .putString(PREF_ROUTE_ID, route.getId())
+                    .putString(PREF_ROUTE_NAME, route.getName())
+                    .remove(PREF_SESSION_ID)
+                    .apply();
+        }
+    }
+
+    private void persistSession(String sessionId) {
+        mPreferences.edit().putString(PREF_SESSION_ID, sessionId).apply();
+    }
+
+    /**
+     * Returns true if a callback of the given connection attempt arrived after the attempt was
+     * torn down or replaced by another one, in which case it must be ignored.
+     */
+    private boolean isStale(int generation, String callback) {
+        if (generation == mConnectionGeneration) {
+            return false;
+        }
+        Log.d(TAG, "Ignoring " + callback + " of an old connection attempt");
+        return true;
+    }
+
+    /**
+     * Tears the connection down for good after the receiver application stopped, so that it is
+     * not launched again behind the back of whoever stopped it.
+     */
+    private void endStoppedApplication() {
+        forgetSession();
+        setSelectedDevice(null, DISCONNECT_CAUSE_APPLICATION_DISCONNECTED);
+    }
+
+    /**
+     * Returns true if the receiver application was disconnected by a loss of the link to it,
+     * rather than stopped by a sender or by itself.
+     */
+    private static boolean isLinkLoss(int statusCode) {
+        switch (statusCode) {
+            case CastStatusCodes.NETWORK_ERROR:
+            case CastStatusCodes.TIMEOUT:
+            case CastStatusCodes.INTERRUPTED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void forgetSession() {
+        mPreferences.edit().remove(PREF_SESSION_ID).apply();
+    }
+
+    private void dispatchRouteSelected(final CastDevice device) {
+        dispatch(new Dispatch() {
+            @Override
+            void deliver(ConnectionListener listener) {
+                listener.onRouteSelected(device);
+            }
+        });
+    }
+
+    private void dispatchApiClientConnected() {
+        dispatch(new Dispatch() {
+            @Override
+            void deliver(ConnectionListener listener) {
+                listener.onApiClientConnected();
+            }
+        });
+    }
+
+    private void dispatchApplicationLaunched(final String sessionId) {
+        dispatch(new Dispatch() {
+            @Override
+            void deliver(ConnectionListener listener) {
+                listener.onApplicationLaunched(sessionId);
+            }
+        });
+    }
+
+    private void dispatchGameTransportReady(final GameTransport transport) {
+        dispatch(new Dispatch() {
+            @Override
+            void deliver(ConnectionListener listener) {
+                listener.onGameTransportReady(transport);
+            }
+        });
+    }
+
+    private void dispatchDisconnected(final int cause) {
+        AppEvents.LOG.log(AppEvents.DISCONNECTED, cause);
+        dispatch(new Dispatch() {
+            @Override
+            void deliver(ConnectionListener listener) {
+                listener.onDisconnected(cause);
+            }
+        });
+    }
+
+    /**
+     * Delivers an event to all the listeners on the main thread, right away if already on it.
+     */
+    private void dispatch(final Dispatch dispatch) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            dispatch.run();
+        } else {
+            mMainHandler.post(dispatch);
+        }
+    }
+
+    /**
+     * A connection event to deliver to every listener.
+     */
+    private abstract class Dispatch implements Runnable {
+
+        abstract void deliver(ConnectionListener listener);
+
+        @Override
+        public void run() {
+            for (ConnectionListener listener : mListeners) {
+                deliver(listener);
+            }
+        }
+    }
+
     /**
      * Media router callbacks.
      */
@@ -185,23 +698,57 @@ public class CastConnectionManager extends Observable {
 
         @Override
         public void onRouteAdded(MediaRouter router, RouteInfo route) {
+            GameTrace.beginSection("CastConnectionManager.onRouteAdded");
+            try {
+                if (route.getId().equals(mPreferences.getString(PREF_ROUTE_ID, null))) {
+                    mLastKnownRoute = route;
+                    maybeResumeRoute(route);
+                }
+            } finally {
+                GameTrace.endSection();
+            }
         }
 
         @Override
         public void onRouteRemoved(MediaRouter router, RouteInfo route) {
+            GameTrace.beginSection("CastConnectionManager.onRouteRemoved");
+            try {
+                if (route == mLastKnownRoute) {
+                    mLastKnownRoute = null;
+                }
+            } finally {
+                GameTrace.endSection();
+            }
         }
 
         @Override
         public void onRouteSelected(MediaRouter router, RouteInfo info) {
-            Log.d(TAG, "MediaRouteCallback.onRouteSelected: info=" + info);
-            CastDevice device = CastDevice.getFromBundle(info.getExtras());
-            setSelectedDevice(device);
+            GameTrace.beginSection("CastConnectionManager.onRouteSelected");
+            try {
+                Log.d(TAG, "MediaRouteCallback.onRouteSelected: info=" + info);
+                AppMetrics.ROUTE_SELECTED.incrementAndGet();
+                CastDevice device = CastDevice.getFromBundle(info.getExtras());
+                persistRoute(info);
+                setSelectedDevice(device, DISCONNECT_CAUSE_ROUTE_CHANGED);
+            } finally {
+                GameTrace.endSection();
+            }
         }
 
         @Override
         public void onRouteUnselected(MediaRouter router, RouteInfo info) {
-            Log.d(TAG, "MediaRouteCallback.onRouteUnselected: info=" + info);
-            setSelectedDevice(null);
+            GameTrace.beginSection("CastConnectionManager.onRouteUnselected");
+            try {
+                Log.d(TAG, "MediaRouteCallback.onRouteUnselected: info=" + info);
+                AppMetrics.ROUTE_UNSELECTED.incrementAndGet();
+                if (mSelectedDevice != null) {
+                    // The user disconnected from the cast dialog.
+                    forgetSession();
+                }
+                setSelectedDevice(null, DISCONNECT_CAUSE_ROUTE_UNSELECTED);
+            } finally {
+                GameTrace.endSection();
+            }
         }
     }
 
@@ -211,29 +758,60 @@ public class CastConnectionManager extends Observable {
     private class GoogleApiClientConnectionCallback implements
             GoogleApiClient.ConnectionCallbacks, GoogleApiClient.OnConnectionFailedListener {
 
+        private final int mGeneration = mConnectionGeneration;
+
         @Override
         public void onConnectionSuspended(int cause) {
-            Log.d(TAG, "GoogleApiClient disconnected. Cause: " + cause);
-            setSelectedDevice(null);
+            GameTrace.beginSection("CastConnectionManager.onConnectionSuspended");
+            try {
+                if (isStale(mGeneration, "onConnectionSuspended")) {
+                    return;
+                }
+                Log.d(TAG, "GoogleApiClient disconnected. Cause: " + cause);
+                AppMetrics.API_CLIENT_SUSPENDED.incrementAndGet();
+                onConnectionLost(DISCONNECT_CAUSE_CONNECTION_SUSPENDED);
+            } finally {
+                GameTrace.endSection();
+            }
         }
 
         @Override
         public void onConnected(Bundle connectionHint) {
-            Log.d(TAG, "GoogleApiClient connected.");
-            if (!isApiClientConnected()) {
-                Log.w(TAG, "Got GoogleApiClient.onConnected callback but the Google API client is "
-                        + "disconnected.");
-                setSelectedDevice(null);
-                return;
+            GameTrace.beginSection("CastConnectionManager.onConnected");
+            try {
+                if (isStale(mGeneration, "onConnected")) {
+                    return;
+                }
+                Log.d(TAG, "GoogleApiClient connected.");
+                if (!isApiClientConnected()) {
+                    Log.w(TAG, "Got GoogleApiClient.onConnected callback but the Google API "
+                            + "client is disconnected.");
+                    onConnectionLost(DISCONNECT_CAUSE_CONNECTION_FAILED);
+                    return;
+                }
+                AppMetrics.API_CLIENT_CONNECTED.incrementAndGet();
+                setState(STATE_LAUNCHING);
+                mConnectionTimings.endPhase(ConnectionTimings.PHASE_API_CLIENT_CONNECT);
+                dispatchApiClientConnected();
+                launchOrJoinApplication();
+            } finally {
+                GameTrace.endSection();
             }
-            Cast.CastApi.launchApplication(mApiClient, mAppId)
-                    .setResultCallback(new LaunchReceiverApplicationResultCallback());
         }
 
         @Override
         public void onConnectionFailed(ConnectionResult result) {
-            Log.d(TAG, "Failed to connect the Google API client " + result);
-            setSelectedDevice(null);
+            GameTrace.beginSection("CastConnectionManager.onConnectionFailed");
+            try {
+                if (isStale(mGeneration, "onConnectionFailed")) {
+                    return;
+                }
+                Log.d(TAG, "Failed to connect the Google API client " + result);
+                AppMetrics.API_CLIENT_FAILED.incrementAndGet();
+                onConnectionLost(DISCONNECT_CAUSE_CONNECTION_FAILED);
+            } finally {
+                GameTrace.endSection();
+            }
         }
     }
 
@@ -242,28 +820,93 @@ public class CastConnectionManager extends Observable {
      */
     private class CastListener extends Cast.Listener {
 
+        private final int mGeneration = mConnectionGeneration;
+
         @Override
         public void onApplicationDisconnected(int statusCode) {
-            Log.d(TAG, "Cast.Listener.onApplicationDisconnected: " + statusCode);
-            setSelectedDevice(null);
+            GameTrace.beginSection("CastConnectionManager.onApplicationDisconnected");
+            try {
+                if (isStale(mGeneration, "onApplicationDisconnected")) {
+                    return;
+                }
+                Log.d(TAG, "Cast.Listener.onApplicationDisconnected: " + statusCode);
+                AppMetrics.APPLICATION_DISCONNECTED.incrementAndGet();
+                FlightRecorder.dump(mContext, "applicationDisconnected");
+                if (isLinkLoss(statusCode)) {
+                    // The application may still be running: rejoin it, but do not launch it
+                    // again, since it may also have been stopped while the link was down.
+                    mRejoinOnly = true;
+                    onConnectionLost(DISCONNECT_CAUSE_APPLICATION_DISCONNECTED);
+                } else {
+                    // Stopped by another sender or by the receiver itself, once no players
+                    // are left.
+                    endStoppedApplication();
+                }
+            } finally {
+                GameTrace.endSection();
+            }
         }
     }
 
+    /**
+     * Receiver application launch or join callback.
+     */
     private final class LaunchReceiverApplicationResultCallback implements
             ResultCallback<ApplicationConnectionResult> {
 
+        private final int mGeneration = mConnectionGeneration;
+
+        private final boolean mJoining;
+
+        /**
+         * @param joining true if joining a persisted session, in which case a failure falls back
+         *                to launching the application.
+         */
+        LaunchReceiverApplicationResultCallback(boolean joining) {
+            mJoining = joining;
+        }
+
         @Override
         public void onResult(ApplicationConnectionResult result) {
-            Status status = result.getStatus();
-            if (status.isSuccess()) {
-                ApplicationMetadata appMetaData = result.getApplicationMetadata();
-                Log.d(TAG, "Launching game: " + appMetaData.getName());
-                mCastSessionId = result.getSessionId();
-                GameManagerClient.getInstanceFor(mApiClient, mCastSessionId).setResultCallback(
-                        new GameManagerGetInstanceCallback());
-            } else {
-                Log.d(TAG, "Unable to launch the the game. statusCode: " + status.getStatusCode());
-                setSelectedDevice(null);
+            GameTrace.beginSection("CastConnectionManager.onApplicationConnectionResult");
+            try {
+                if (isStale(mGeneration, "onApplicationConnectionResult")) {
+                    return;
+                }
+                if (!isApiClientConnected()) {
+                    Log.w(TAG, "Ignoring application connection result, the Google API client is "
+                            + "disconnected.");
+                    return;
+                }
+                Status status = result.getStatus();
+                if (status.isSuccess()) {
+                    ApplicationMetadata appMetaData = result.getApplicationMetadata();
+                    Log.d(TAG, (mJoining ? "Joined game: " : "Launching game: ")
+                            + appMetaData.getName());
+                    AppMetrics.APPLICATION_LAUNCHED.incrementAndGet();
+                    mCastSessionId = result.getSessionId();
+                    persistSession(mCastSessionId);
+                    mConnectionTimings.endPhase(ConnectionTimings.PHASE_APPLICATION_LAUNCH);
+                    dispatchApplicationLaunched(mCastSessionId);
+                    GameManagerClient.getInstanceFor(mApiClient, mCastSessionId).setResultCallback(
+                            new GameManagerGetInstanceCallback());
+                } else if (mJoining && mRejoinOnly) {
+                    Log.d(TAG, "Unable to rejoin the last session. statusCode: "
+                            + status.getStatusCode());
+                    endStoppedApplication();
+                } else if (mJoining) {
+                    Log.d(TAG, "Unable to join the last session, launching the game. statusCode: "
+                            + status.getStatusCode());
+                    forgetSession();
+                    launchOrJoinApplication();
+                } else {
+                    Log.d(TAG, "Unable to launch the the game. statusCode: "
+                            + status.getStatusCode());
+                    AppMetrics.APPLICATION_LAUNCH_FAILED.incrementAndGet();
+                    onConnectionLost(DISCONNECT_CAUSE_LAUNCH_FAILED);
+                }
+            } finally {
+                GameTrace.endSection();
             }
         }
     }
@@ -274,18 +917,35 @@ public class CastConnectionManager extends Observable {
     private final class GameManagerGetInstanceCallback implements
             ResultCallback<GameManagerInstanceResult> {
 
+        private final int mGeneration = mConnectionGeneration;
+
         @Override
         public void onResult(GameManagerInstanceResult gameManagerResult) {
-            if (!gameManagerResult.getStatus().isSuccess()) {
-                Log.d(TAG, "Unable to initialize the GameManagerClient: "
-                        + gameManagerResult.getStatus().getStatusMessage()
-                        + " Status code: " + gameManagerResult.getStatus().getStatusCode());
-                setSelectedDevice(null);
-                return;
+            GameTrace.beginSection("CastConnectionManager.onGameManagerInstanceResult");
+            try {
+                if (isStale(mGeneration, "onGameManagerInstanceResult")) {
+                    return;
+                }
+                if (!gameManagerResult.getStatus().isSuccess()) {
+                    Log.d(TAG, "Unable to initialize the GameManagerClient: "
+                            + gameManagerResult.getStatus().getStatusMessage()
+                            + " Status code: " + gameManagerResult.getStatus().getStatusCode());
+                    AppMetrics.GAME_MANAGER_CLIENT_FAILED.incrementAndGet();
+                    FlightRecorder.dump(mContext, "gameManagerClientFailed");
+                    onConnectionLost(DISCONNECT_CAUSE_GAME_MANAGER_FAILED);
+                    return;
+                }
+                AppMetrics.GAME_MANAGER_CLIENT_READY.incrementAndGet();
+                mGameTransport = new CastGameTransport(gameManagerResult.getGameManagerClient());
+                setState(STATE_CONNECTED);
+                mReconnectAttempts = 0;
+                mRejoinOnly = false;
+                mConnectionTimings.endPhase(ConnectionTimings.PHASE_GAME_MANAGER_CLIENT);
+                flushPendingMessages();
+                dispatchGameTransportReady(mGameTransport);
+            } finally {
+                GameTrace.endSection();
             }
-            mGameManagerClient = gameManagerResult.getGameManagerClient();
-            setChanged();
-            notifyObservers();
         }
     }
 
@@ -295,4 +955,18 @@ public class CastConnectionManager extends Observable {
     private boolean isApiClientConnected() {
         return (mApiClient != null) && (mApiClient.isConnected());
     }
+
+    /**
+     * A game message queued while reconnecting.
+     */
+    private static final class PendingMessage {
+
+        final JSONObject mMessage;
+        final long mQueuedAtMs;
+
+        PendingMessage(JSONObject message, long queuedAtMs) {
+            mMessage = message;
+            mQueuedAtMs = queuedAtMs;
+        }
+    }
 }
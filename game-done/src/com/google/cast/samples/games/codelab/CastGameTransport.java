@@ -0,0 +1,168 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import com.google.android.gms.cast.games.GameManagerClient;
+import com.google.android.gms.cast.games.GameManagerClient.GameManagerResult;
+import com.google.android.gms.cast.games.GameManagerState;
+import com.google.android.gms.cast.games.PlayerInfo;
+import com.google.android.gms.common.api.PendingResult;
+import com.google.android.gms.common.api.ResultCallback;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link GameTransport} over the Cast Game Manager. State changes are folded into one update
+ * per frame with a {@link StateChangeCoalescer} and reported as individual events with
+ * {@link GameStateDiffer}. Must be used on the main thread.
+ */
+public class CastGameTransport implements GameTransport {
+
+    private final GameManagerClient mGameManagerClient;
+    private final StateChangeCoalescer mStateChangeCoalescer;
+    private Listener mListener;
+
+    public CastGameTransport(GameManagerClient gameManagerClient) {
+        mGameManagerClient = gameManagerClient;
+        mStateChangeCoalescer = new StateChangeCoalescer(new GameManagerClient.Listener() {
+            @Override
+            public void onStateChanged(GameManagerState newState, GameManagerState oldState) {
+                GameTrace.beginSection("CastGameTransport.onStateChanged");
+                try {
+                    AppEvents.LOG.log(AppEvents.GAME_STATE, newState.getLobbyState(),
+                            newState.getGameplayState(), newState.getPlayers().size());
+                    if (mListener != null) {
+                        GameStateDiffer.diff(newState, oldState, mListener);
+                    }
+                } finally {
+                    GameTrace.endSection();
+                }
+            }
+
+            @Override
+            public void onGameMessageReceived(String playerId, JSONObject message) {
+                GameTrace.beginSection("CastGameTransport.onGameMessageReceived");
+                try {
+                    AppEvents.LOG.log(AppEvents.MESSAGE_RECEIVED, message.length());
+                    if (mListener != null) {
+                        mListener.onGameMessageReceived(playerId, message);
+                    }
+                } finally {
+                    GameTrace.endSection();
+                }
+            }
+        });
+        mGameManagerClient.setListener(mStateChangeCoalescer);
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    @Override
+    public void sendPlayerAvailableRequest(JSONObject extraMessageData,
+            RequestCallback callback) {
+        setRequestCallback(mGameManagerClient.sendPlayerAvailableRequest(extraMessageData),
+                callback);
+    }
+
+    @Override
+    public void sendPlayerReadyRequest(JSONObject extraMessageData, RequestCallback callback) {
+        setRequestCallback(mGameManagerClient.sendPlayerReadyRequest(extraMessageData), callback);
+    }
+
+    @Override
+    public void sendPlayerPlayingRequest(JSONObject extraMessageData, RequestCallback callback) {
+        setRequestCallback(mGameManagerClient.sendPlayerPlayingRequest(extraMessageData),
+                callback);
+    }
+
+    @Override
+    public void sendGameMessage(JSONObject message) {
+        AppEvents.LOG.log(AppEvents.MESSAGE_SENT, message.toString().length());
+        mGameManagerClient.sendGameMessage(message);
+    }
+
+    @Override
+    public String getLastUsedPlayerId() {
+        return mGameManagerClient.getLastUsedPlayerId();
+    }
+
+    @Override
+    public int getPlayerState(String playerId) {
+        PlayerInfo playerInfo = (playerId == null) ? null
+                : mGameManagerClient.getCurrentState().getPlayer(playerId);
+        return (playerInfo == null) ? GameStates.PLAYER_STATE_UNKNOWN
+                : playerInfo.getPlayerState();
+    }
+
+    @Override
+    public List<String> getPlayerIds() {
+        List<String> playerIds = new ArrayList<>();
+        for (PlayerInfo playerInfo : mGameManagerClient.getCurrentState().getPlayers()) {
+            playerIds.add(playerInfo.getPlayerId());
+        }
+        return playerIds;
+    }
+
+    @Override
+    public int getLobbyState() {
+        return mGameManagerClient.getCurrentState().getLobbyState();
+    }
+
+    @Override
+    public int getGameplayState() {
+        return mGameManagerClient.getCurrentState().getGameplayState();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return !mGameManagerClient.isDisposed();
+    }
+
+    @Override
+    public void dispose() {
+        mStateChangeCoalescer.cancel();
+        mGameManagerClient.dispose();
+    }
+
+    private void setRequestCallback(PendingResult<GameManagerResult> result,
+            final RequestCallback callback) {
+        if (callback == null) {
+            return;
+        }
+        result.setResultCallback(new ResultCallback<GameManagerResult>() {
+            @Override
+            public void onResult(GameManagerResult gameManagerResult) {
+                GameTrace.beginSection("CastGameTransport.onRequestResult");
+                try {
+                    if (gameManagerResult.getStatus().isSuccess()) {
+                        String playerId = gameManagerResult.getPlayerId();
+                        callback.onRequestSucceeded(playerId, getPlayerState(playerId));
+                    } else {
+                        AppEvents.LOG.log(AppEvents.REQUEST_FAILED,
+                                gameManagerResult.getStatus().getStatusCode());
+                        callback.onRequestFailed(gameManagerResult.getStatus().getStatusMessage());
+                    }
+                } finally {
+                    GameTrace.endSection();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,120 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import android.os.SystemClock;
+
+/**
+ * Times the phases of the connection to the receiver with the monotonic clock, and records them
+ * in a histogram per phase. The histograms live in {@link AppMetrics}, so they add up across
+ * every {@link CastConnectionManager} of the process.
+ */
+public class ConnectionTimings {
+
+    // From route selection, or a reconnection attempt, to the Google API client being connected
+    public static final int PHASE_API_CLIENT_CONNECT = 0;
+    // From the API client being connected to the receiver application being launched or joined
+    public static final int PHASE_APPLICATION_LAUNCH = 1;
+    // From the application being launched to the GameManagerClient being ready
+    public static final int PHASE_GAME_MANAGER_CLIENT = 2;
+    // From the GameManagerClient being ready to the player being available in the game
+    public static final int PHASE_PLAYER_AVAILABLE = 3;
+    // From route selection to the player being available
+    public static final int PHASE_TOTAL_CONNECT = 4;
+    // From a reconnection attempt to the GameManagerClient being ready again
+    public static final int PHASE_TOTAL_RECONNECT = 5;
+    private static final int PHASE_COUNT = 6;
+
+    private static final String[] PHASE_NAMES = {
+            "apiClientConnect",
+            "applicationLaunch",
+            "gameManagerClient",
+            "playerAvailable",
+            "totalConnect",
+            "totalReconnect",
+    };
+
+    private final LatencyHistogram[] mHistograms = new LatencyHistogram[PHASE_COUNT];
+
+    // Start of the connection and of the current phase, or 0 if no connection is being timed
+    private long mConnectionStartNanos;
+    private long mPhaseStartNanos;
+    private boolean mReconnecting;
+
+    public ConnectionTimings() {
+        for (int phase = 0; phase < PHASE_COUNT; phase++) {
+            mHistograms[phase] = AppMetrics.REGISTRY.getHistogram(PHASE_NAMES[phase]);
+        }
+    }
+
+    /**
+     * Starts timing a connection.
+     *
+     * @param reconnecting true if this is an automatic reconnection attempt rather than a route
+     *                     selection.
+     */
+    public void begin(boolean reconnecting) {
+        mConnectionStartNanos = SystemClock.elapsedRealtimeNanos();
+        mPhaseStartNanos = mConnectionStartNanos;
+        mReconnecting = reconnecting;
+    }
+
+    /**
+     * Records the end of a phase, which is also the start of the next one. Does nothing if no
+     * connection is being timed.
+     */
+    public void endPhase(int phase) {
+        if (mPhaseStartNanos == 0) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtimeNanos();
+        mHistograms[phase].record(now - mPhaseStartNanos);
+        AppEvents.LOG.log(AppEvents.CONNECTION_PHASE, phase,
+                (int) ((now - mPhaseStartNanos) / 1000));
+        mPhaseStartNanos = now;
+
+        if (phase == PHASE_GAME_MANAGER_CLIENT && mReconnecting) {
+            // A reconnected player is already in the game.
+            mHistograms[PHASE_TOTAL_RECONNECT].record(now - mConnectionStartNanos);
+            cancel();
+        } else if (phase == PHASE_PLAYER_AVAILABLE) {
+            mHistograms[PHASE_TOTAL_CONNECT].record(now - mConnectionStartNanos);
+            cancel();
+        }
+    }
+
+    /**
+     * Stops timing the current connection without recording anything more, for example when it
+     * fails.
+     */
+    public void cancel() {
+        mConnectionStartNanos = 0;
+        mPhaseStartNanos = 0;
+    }
+
+    public LatencyHistogram getHistogram(int phase) {
+        return mHistograms[phase];
+    }
+
+    /**
+     * Returns a summary of every phase, one per line.
+     */
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        for (LatencyHistogram histogram : mHistograms) {
+            builder.append(histogram).append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -18,11 +18,13 @@ import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.Rect;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.View.OnTouchListener;
+import android.view.WindowManager;
 
 /**
  * This View is the canvas on which the user can paint. Every time the user touches this view,
@@ -32,14 +34,15 @@ import android.view.View.OnTouchListener;
  */
 public class DrawView extends View implements OnTouchListener {
 
-    protected static final int GRID_SIZE = 20;
+    protected static final int GRID_SIZE = GameMessages.GRID_SIZE;
     private static final String TAG = "DrawView";
 
-    private short[][] mGrid;
+    // Drawing for longer than a frame at 60Hz is recorded as a stall
+    private static final long STALL_THRESHOLD_NANOS = 16000000L;
+
+    private final GridModel mGrid = new GridModel(GRID_SIZE);
     private double mHeightInPixels;
     private short mSelectedColor = 1;
-    private int mLastGridX = -1;
-    private int mLastGridY = -1;
     private DrawViewListener mListener;
 
     // These are the four colors provided for painting.
@@ -56,6 +59,15 @@ public class DrawView extends View implements OnTouchListener {
     // Some temporary variables so we don't allocate while rendering
     private Rect mRect = new Rect();
     private Paint mPaint = new Paint();
+    private Paint mOverlayPaint = new Paint();
+
+    private final FrameTimingRecorder mFrameTimingRecorder;
+    // Time of the oldest touch event whose result has not been drawn yet, or 0
+    private long mPendingTouchNanos = 0;
+
+    // Start of the switch to the drawing screen, timed until the first frame, or 0
+    private long mFirstFrameStartNanos = 0;
+    private LatencyHistogram mFirstFrameHistogram;
 
     private Boolean mKeepAnimating = false;
 
@@ -64,10 +76,15 @@ public class DrawView extends View implements OnTouchListener {
     public DrawView(Context context, AttributeSet attrs) {
         super(context, attrs);
 
-        mGrid = new short[GRID_SIZE][GRID_SIZE];
-
         setOnTouchListener(this);
 
+        WindowManager windowManager =
+                (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        mFrameTimingRecorder =
+                new FrameTimingRecorder(windowManager.getDefaultDisplay().getRefreshRate());
+        mOverlayPaint.setColor(0xFFFFFFFF);
+        mOverlayPaint.setTextSize(12 * getResources().getDisplayMetrics().scaledDensity);
+
         setAnimating(true);
     }
 
@@ -75,6 +92,17 @@ public class DrawView extends View implements OnTouchListener {
         mListener = listener;
     }
 
+    /**
+     * Records the time from startNanos to the end of the next draw in histogram.
+     *
+     * @param startNanos the start of the switch to the drawing screen, in the
+     *                   {@link SystemClock#elapsedRealtimeNanos()} time base.
+     */
+    public void timeFirstFrame(long startNanos, LatencyHistogram histogram) {
+        mFirstFrameStartNanos = startNanos;
+        mFirstFrameHistogram = histogram;
+    }
+
     public void setAnimating(Boolean val) {
         mKeepAnimating = val;
         if (val) {
@@ -94,28 +122,58 @@ public class DrawView extends View implements OnTouchListener {
 
     @Override
     public void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-
-        // Assume this is a square (as we will make it so in onMeasure()
-        // and figure out how many pixels there are.
-        mHeightInPixels = this.getHeight();
-
-        // Now, draw with 0,0 in upper left and 9,9 in lower right
-        for (int x = 0; x < GRID_SIZE; x++) {
-            for (int y = 0; y < GRID_SIZE; y++) {
-                mPaint.setColor(COLOR_MAP[mGrid[x][y]]);
+        GameTrace.beginSection("DrawView.onDraw");
+        try {
+            long startNanos = SystemClock.elapsedRealtimeNanos();
+            super.onDraw(canvas);
+
+            // Assume this is a square (as we will make it so in onMeasure()
+            // and figure out how many pixels there are.
+            mHeightInPixels = this.getHeight();
+
+            // Now, draw with 0,0 in upper left and 9,9 in lower right
+            for (int x = 0; x < GRID_SIZE; x++) {
+                for (int y = 0; y < GRID_SIZE; y++) {
+                    mPaint.setColor(COLOR_MAP[mGrid.getColor(x, y)]);
+
+                    mRect.top = sp(((float) y) / GRID_SIZE);
+                    mRect.left = sp(((float) x) / GRID_SIZE);
+                    mRect.right = sp(((float) (x + 1)) / GRID_SIZE);
+                    mRect.bottom = sp(((float) (y + 1)) / GRID_SIZE);
+
+                    canvas.drawRect(mRect, mPaint);
+                }
+            }
 
-                mRect.top = sp(((float) y) / GRID_SIZE);
-                mRect.left = sp(((float) x) / GRID_SIZE);
-                mRect.right = sp(((float) (x + 1)) / GRID_SIZE);
-                mRect.bottom = sp(((float) (y + 1)) / GRID_SIZE);
+            mFrameTimingRecorder.start();
+            if (mPendingTouchNanos != 0) {
+                mFrameTimingRecorder.onTouchDrawn(mPendingTouchNanos);
+                mPendingTouchNanos = 0;
+            }
+            String overlayText = mFrameTimingRecorder.getOverlayText();
+            if (!overlayText.isEmpty()) {
+                canvas.drawText(overlayText, 0, -mOverlayPaint.ascent(), mOverlayPaint);
+            }
 
-                canvas.drawRect(mRect, mPaint);
+            long drawNanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+            AppMetrics.DRAW_VIEW_FRAMES.incrementAndGet();
+            AppMetrics.DRAW_VIEW_ON_DRAW.record(drawNanos);
+            if (drawNanos > STALL_THRESHOLD_NANOS) {
+                AppEvents.LOG.log(AppEvents.RENDER_STALL, (int) (drawNanos / 1000));
+            }
+            if (mFirstFrameStartNanos != 0) {
+                long firstFrameNanos = SystemClock.elapsedRealtimeNanos() - mFirstFrameStartNanos;
+                mFirstFrameHistogram.record(firstFrameNanos);
+                Log.d(TAG, "First frame " + (firstFrameNanos / 1000000) + "ms after playing: "
+                        + mFirstFrameHistogram);
+                mFirstFrameStartNanos = 0;
             }
-        }
 
-        if (mKeepAnimating) {
-            invalidate();
+            if (mKeepAnimating) {
+                invalidate();
+            }
+        } finally {
+            GameTrace.endSection();
         }
     }
 
@@ -138,48 +196,59 @@ public class DrawView extends View implements OnTouchListener {
         setMeasuredDimension(widthMeasureSpec, heightMeasureSpec);
     }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        mFrameTimingRecorder.stop();
+        super.onDetachedFromWindow();
+    }
+
     public void setTouchEnabled(boolean touchEnabled) {
         this.mTouchEnabled = touchEnabled;
     }
 
     @Override
     public boolean onTouch(View arg0, MotionEvent me) {
-        if (!mTouchEnabled) {
-            return false;
-        }
-
-        switch (me.getAction() & MotionEvent.ACTION_MASK) {
-            case MotionEvent.ACTION_DOWN:
-            case MotionEvent.ACTION_MOVE:
-                // Find where the touch event, which is in pixels, maps
-                // to our 10x10 grid. (0,0) is in the upper left, (9, 9)
-                // is in the lower right.
-                int gridX = (int) Math.floor(1.0 * me.getX() / mHeightInPixels * GRID_SIZE);
-                int gridY = (int) Math.floor(1.0 * me.getY() / mHeightInPixels * GRID_SIZE);
-
-                Log.d(TAG, "You touched " + gridX + " " + gridY + "/" + me.getY());
-
-                if (gridX < GRID_SIZE && gridY < GRID_SIZE && gridX >= 0 && gridY >= 0) {
-
-                    short oldColor = mGrid[gridX][gridY];
-                    mGrid[gridX][gridY] = mSelectedColor;
-
-                    // Don't double-draw or send messages where the color does not change
-                    boolean notSameSpot = (mLastGridX != gridX) || (mLastGridY != gridY);
-                    boolean notSameColor = oldColor != mSelectedColor;
-                    if (notSameSpot && notSameColor) {
-                        if (mListener != null) {
-                            mListener.onDrawEvent(gridX, gridY, mSelectedColor);
+        GameTrace.beginSection("DrawView.onTouch");
+        try {
+            if (!mTouchEnabled) {
+                return false;
+            }
+            long startNanos = SystemClock.elapsedRealtimeNanos();
+
+            switch (me.getAction() & MotionEvent.ACTION_MASK) {
+                case MotionEvent.ACTION_DOWN:
+                case MotionEvent.ACTION_MOVE:
+                    // Find where the touch event, which is in pixels, maps
+                    // to our 10x10 grid. (0,0) is in the upper left, (9, 9)
+                    // is in the lower right.
+                    int gridX = (int) Math.floor(1.0 * me.getX() / mHeightInPixels * GRID_SIZE);
+                    int gridY = (int) Math.floor(1.0 * me.getY() / mHeightInPixels * GRID_SIZE);
+
+                    AppEvents.LOG.log(AppEvents.TOUCH, gridX, gridY);
+
+                    if (mGrid.contains(gridX, gridY)) {
+                        // Don't double-draw or send messages where the color does not change
+                        if (mGrid.paint(gridX, gridY, mSelectedColor)) {
+                            if (mPendingTouchNanos == 0) {
+                                // Event times are in the uptime base, the same clock as nanoTime
+                                mPendingTouchNanos = me.getEventTime() * 1000000L;
+                            }
+                            if (mListener != null) {
+                                mListener.onDrawEvent(gridX, gridY, mSelectedColor);
+                            }
                         }
-                        mLastGridX = gridX;
-                        mLastGridY = gridY;
                     }
-                }
 
-                return true;
-        }
+                    AppMetrics.DRAW_VIEW_TOUCHES.incrementAndGet();
+                    AppMetrics.DRAW_VIEW_ON_TOUCH.record(
+                            SystemClock.elapsedRealtimeNanos() - startNanos);
+                    return true;
+            }
 
-        return false;
+            return false;
+        } finally {
+            GameTrace.endSection();
+        }
     }
 
     /**
@@ -191,21 +260,14 @@ public class DrawView extends View implements OnTouchListener {
      */
     public void setMacroPixel(int gridX, int gridY, short colorIndex) {
         // paint that pixel with the currently selected color
-        mGrid[gridX][gridY] = colorIndex;
+        mGrid.setMacroPixel(gridX, gridY, colorIndex);
     }
 
     /**
      * Clear paint from all pixels.
      */
     public void clear() {
-        mLastGridX = -1;
-        mLastGridY = -1;
-
-        for (int x = 0; x < GRID_SIZE; x++) {
-            for (int y = 0; y < GRID_SIZE; y++) {
-                mGrid[x][y] = 0;
-            }
-        }
+        mGrid.clear();
     }
 
 }
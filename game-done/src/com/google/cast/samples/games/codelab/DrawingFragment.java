@@ -13,10 +13,6 @@
 // limitations under the License.
 package com.google.cast.samples.games.codelab;
 
-import com.google.android.gms.cast.games.GameManagerClient;
-import com.google.android.gms.cast.games.GameManagerState;
-import com.google.android.gms.cast.games.PlayerInfo;
-
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -25,22 +21,17 @@ import android.content.DialogInterface;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
-import android.text.TextUtils;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.WindowManager;
 import android.widget.AdapterView;
-import android.widget.ArrayAdapter;
 import android.widget.ListView;
-import android.widget.ProgressBar;
 import android.widget.TextView;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
 
@@ -56,21 +47,12 @@ public class DrawingFragment extends GameFragment
     private static final int MAX_TIME = 30;
     private static final int MAX_WORDS = 10;
 
-    // Various messages sent to the receiver
-    private static final String MESSAGE_TURN = "turn";
-    private static final String MESSAGE_WORDS = "words";
-    private static final String MESSAGE_INDEX = "index";
-    private static final String MESSAGE_GUESS = "guess";
-    private static final String MESSAGE_ARTIST = "artist";
-    private static final String MESSAGE_CLEAR = "clear";
-    private static final String MESSAGE_PLAYER = "player";
-    private static final String MESSAGE_GRID = "grid";
-
     // AlertDialog for showing messages to the user
     private AlertDialog mAlertDialog;
 
-    // It is the player's turn when (match turn number % num participants == my turn index)
-    private int mMyTurnIndex;
+    // Turn order of the playing participants and who has guessed this turn. It is the player's
+    // turn when (match turn number % num participants == my turn index)
+    private final PlayerRoster mRoster = new PlayerRoster();
 
     // The match turn number, monotonically increasing from 0
     private int mMatchTurnNumber = 0;
@@ -81,28 +63,34 @@ public class DrawingFragment extends GameFragment
     // The index of the correct word
     private int mWordIndex = 0;
 
-    // Set of participant IDs for players that have guessed this turn
-    private HashSet<String> mGuessersThisTurn = new HashSet<>();
-
     // True if this player has already guessed this turn, false otherwise
     private boolean mHasGuessed = false;
 
+    // Incremented every time a turn begins
+    private int mTurnGeneration = 0;
+
+    // Time left to make a guess, counted down from MAX_TIME to 1
+    private int mSecondsLeft = MAX_TIME;
+
     // Data to draw the DrawView
     private DrawView mDrawView;
 
     // All possible words for game
     private String[] mAllWords;
+    private WordSampler mWordSampler;
 
-    // ProgressBar, TextView, and Handler used to show the time remaining to make a guess.
-    private ProgressBar mGuessProgress;
-    private TextView mGuessProgressText;
+    // The guess words, kept across turns and views
+    private GuessWordAdapter mWordAdapter;
+
+    // Handler used to count down the time remaining to make a guess.
     private Handler mGuessProgressHandler = new Handler(Looper.getMainLooper());
 
-    private ListView mListView;
-    private View mAristUIView;
-    private View mGuesserUIView;
-    private View mClearDoneLayoutView;
-    private View mGuessWordView;
+    // Applies the view state to the current views, null while there are none
+    private DrawingViewRenderer mRenderer;
+    private EventFeed mEventFeed;
+
+    // Start of the switch to this fragment, timed until the first frame of the DrawView, or 0
+    private long mFirstFrameStartNanos = 0;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -114,19 +102,22 @@ public class DrawingFragment extends GameFragment
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
             Bundle savedInstanceState) {
         // Inflate the layout for this fragment.
-        View view = inflater.inflate(R.layout.drawing_fragment, container, false);
-
-        // Set up guesser progress
-        mGuessProgress = (ProgressBar) view.findViewById(R.id.guessProgress);
-        mGuessProgressText = (TextView) view.findViewById(R.id.guessProgressText);
+        // Use the drawing screen prepared in the lobby if it is ready
+        DrawingScreenPreloader preloader =
+                ((MainActivity) getActivity()).getDrawingScreenPreloader();
+        View view = preloader.takeView();
+        boolean preloaded = view != null;
+        if (!preloaded) {
+            view = inflater.inflate(R.layout.drawing_fragment, container, false);
+        }
 
         // Button click listeners
         view.findViewById(R.id.clearButton).setOnClickListener(this);
         view.findViewById(R.id.doneButton).setOnClickListener(this);
 
         // ListView item click listener for word guessing
-        mListView = (ListView) view.findViewById(R.id.listView);
-        mListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+        ListView listView = (ListView) view.findViewById(R.id.listView);
+        listView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
             @Override
             public void onItemClick(AdapterView<?> parent, View view,
                     int position, long id) {
@@ -136,25 +127,69 @@ public class DrawingFragment extends GameFragment
 
         mDrawView = ((DrawView) view.findViewById(R.id.drawView));
         mDrawView.setListener(this);
+        if (mFirstFrameStartNanos != 0) {
+            mDrawView.timeFirstFrame(mFirstFrameStartNanos, preloaded
+                    ? AppMetrics.FIRST_FRAME_PRELOADED : AppMetrics.FIRST_FRAME_INFLATED);
+            mFirstFrameStartNanos = 0;
+        }
 
-        // Create array of all words
-        mAllWords = getResources().getString(R.string.words).split("\\s*,\\s*");
+        // Array of all words, parsed once
+        if (mAllWords == null) {
+            mAllWords = preloader.getWords();
+            mWordSampler = new WordSampler(mAllWords, new Random());
+        }
         mTurnWords = Arrays.asList(mAllWords);
 
-        mAristUIView = view.findViewById(R.id.artistUI);
-        mGuesserUIView = view.findViewById(R.id.guesserUI);
-        mClearDoneLayoutView = view.findViewById(R.id.clearDoneLayout);
-        mGuessWordView = view.findViewById(R.id.guessWord);
+        if (mWordAdapter == null) {
+            mWordAdapter = new GuessWordAdapter(mAllWords);
+        }
+        mRenderer = new DrawingViewRenderer(view, mWordAdapter);
+        mEventFeed = new EventFeed(new TextView[] {
+                (TextView) view.findViewById(R.id.eventFeedRow0),
+                (TextView) view.findViewById(R.id.eventFeedRow1),
+                (TextView) view.findViewById(R.id.eventFeedRow2)});
 
         return view;
     }
 
+    /**
+     * Times the next switch to this fragment until the first frame of its DrawView.
+     *
+     * @param startNanos when the player started playing, in the
+     *                   {@link android.os.SystemClock#elapsedRealtimeNanos()} time base.
+     */
+    public void timeFirstFrame(long startNanos) {
+        mFirstFrameStartNanos = startNanos;
+    }
+
+    @Override
+    public void onDestroyView() {
+        mRenderer = null;
+        mEventFeed.clear();
+        mEventFeed = null;
+        super.onDestroyView();
+    }
+
     @Override
     public void onStart() {
         super.onStart();
         startMatch();
     }
 
+    @Override
+    public void onResume() {
+        super.onResume();
+        getActivity().getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+        // Watch the main thread for as long as the game is on screen
+        StallWatchdog.start(StallWatchdog.DEFAULT_THRESHOLD_MS);
+    }
+
+    @Override
+    public void onPause() {
+        StallWatchdog.stop();
+        super.onPause();
+    }
+
     private void showDialog(String title, String message,
             DialogInterface.OnClickListener onClickListener) {
         if (getView() != null) {
@@ -180,7 +215,7 @@ public class DrawingFragment extends GameFragment
         updateTurnIndices();
         if (isMyTurn()) {
             // Pick words randomly
-            mTurnWords = getRandomWordSubset(10);
+            mTurnWords = mWordSampler.sample(MAX_WORDS);
             mWordIndex = (new Random()).nextInt(mTurnWords.size());
 
             // Send turn message to others
@@ -191,16 +226,19 @@ public class DrawingFragment extends GameFragment
     }
 
     private void sendTurnMessage(int matchTurnNumber) {
-        JSONObject jsonMessage = new JSONObject();
+        GameTrace.beginSection("DrawingFragment.sendTurnMessage");
         try {
-            jsonMessage.put(MESSAGE_TURN, matchTurnNumber);
-            jsonMessage.put(MESSAGE_WORDS, TextUtils.join(",", mTurnWords.toArray()));
-            jsonMessage.put(MESSAGE_INDEX, mWordIndex);
-        } catch (JSONException e) {
-            Log.e(TAG, "Error creating JSON message", e);
-            return;
+            JSONObject jsonMessage;
+            try {
+                jsonMessage = GameMessages.newTurnMessage(matchTurnNumber, mTurnWords, mWordIndex);
+            } catch (JSONException e) {
+                Log.e(TAG, "Error creating JSON message", e);
+                return;
+            }
+            sendGameMessage(jsonMessage);
+        } finally {
+            GameTrace.endSection();
         }
-        sendGameMessage(jsonMessage);
     }
 
     /**
@@ -210,95 +248,100 @@ public class DrawingFragment extends GameFragment
      * @return true if the current player is the artist, false otherwise.
      */
     private boolean isMyTurn() {
-        GameManagerClient gameManagerClient = mCastConnectionManager.getGameManagerClient();
-        if (mCastConnectionManager.isConnectedToReceiver()) {
-            GameManagerState state = gameManagerClient.getCurrentState();
-            int numParticipants = state.getPlayersInState(
-                    GameManagerClient.PLAYER_STATE_PLAYING).size();
-            if (numParticipants <= 1) {
-                Log.w(TAG, "isMyTurn: no participants - default to true.");
-                return true;
-            }
-            int participantTurnIndex = mMatchTurnNumber % numParticipants;
-
-            Log.d(TAG, String.format("isMyTurn: %d participants, turn #%d, my turn is #%d",
-                    numParticipants, mMatchTurnNumber, mMyTurnIndex));
-            return (mMyTurnIndex == participantTurnIndex);
-        }
-        return true;
+        return mRoster.isMyTurn(mMatchTurnNumber);
     }
 
     @Override
     public void onDrawEvent(int gridX, int gridY, short colorIndex) {
-        JSONObject jsonMessage = new JSONObject();
+        GameTrace.beginSection("DrawingFragment.onDrawEvent");
         try {
-            jsonMessage.put(MESSAGE_GRID, (gridX + 1) + gridY * DrawView.GRID_SIZE);
-        } catch (JSONException e) {
-            Log.e(TAG, "Error creating JSON message", e);
-            return;
+            AppEvents.LOG.log(AppEvents.DRAW_EVENT, gridX, gridY, colorIndex);
+            JSONObject jsonMessage;
+            try {
+                jsonMessage = GameMessages.newGridMessage(gridX, gridY);
+            } catch (JSONException e) {
+                Log.e(TAG, "Error creating JSON message", e);
+                return;
+            }
+            sendGameMessage(jsonMessage);
+        } finally {
+            GameTrace.endSection();
         }
-        sendGameMessage(jsonMessage);
     }
 
     /**
      * Clear the DrawView and send a message to receiver to do the same
      */
     private void onClearClicked() {
-        mDrawView.clear();
-
-        JSONObject jsonMessage = new JSONObject();
+        GameTrace.beginSection("DrawingFragment.onClearClicked");
         try {
-            jsonMessage.put(MESSAGE_CLEAR, 1);
-        } catch (JSONException e) {
-            Log.e(TAG, "Error creating JSON message", e);
-            return;
+            mDrawView.clear();
+
+            JSONObject jsonMessage;
+            try {
+                jsonMessage = GameMessages.newClearMessage();
+            } catch (JSONException e) {
+                Log.e(TAG, "Error creating JSON message", e);
+                return;
+            }
+            sendGameMessage(jsonMessage);
+        } finally {
+            GameTrace.endSection();
         }
-        sendGameMessage(jsonMessage);
     }
 
     /**
-     * Create a Dialog with the result of the local player's guess.
+     * Shows a notification in the event feed, if the view exists.
+     */
+    private void postToFeed(String title, String message) {
+        if (mEventFeed != null) {
+            mEventFeed.post(title + " " + message);
+        }
+    }
+
+    /**
+     * Show the result of the local player's guess in the event feed.
      *
      * @param guessIndex   the index in the word list that the player clicked.
      * @param correctIndex the index in the word list of the correct answer.
      */
     private void createGuessDialog(int guessIndex, int correctIndex) {
         if (guessIndex == -1) {
-            showDialog(getString(R.string.oh), getString(R.string.you_ran_out_of_time), null);
+            postToFeed(getString(R.string.oh), getString(R.string.you_ran_out_of_time));
             return;
         }
-        Log.d(TAG, "Guessed..." + mTurnWords.get(guessIndex));
-        mHasGuessed = true;
+        AppEvents.LOG.log(AppEvents.GUESS_MADE, guessIndex, (guessIndex == correctIndex) ? 1 : 0);
         String guessedWord = mTurnWords.get(guessIndex);
         String correctWord = mTurnWords.get(correctIndex);
 
         if (guessIndex == correctIndex) {
             // The player guessed correctly
-            showDialog(getString(R.string.you_got_it),
-                    String.format(getResources().getString(R.string.is_correct), guessedWord),
-                    null);
+            postToFeed(getString(R.string.you_got_it),
+                    String.format(getResources().getString(R.string.is_correct), guessedWord));
         } else {
             // The player guessed incorrectly
-            showDialog(getString(R.string.no),
+            postToFeed(getString(R.string.no),
                     String.format(getResources().getString(R.string.is_wrong_the_real_answer_was),
-                            guessedWord, correctWord), null);
+                            guessedWord, correctWord));
         }
     }
 
     /**
-     * Create a dialog with the result of another player's guess.
+     * Count another player's guess in the event feed, and show a dialog once everybody has guessed
+     * since that ends the artist's turn.
      *
      * @param guesserId the participant ID of the player that guessed.
+     * @param correct   true if the guess was correct.
      */
-    private void createOpponentGuessDialog(String guesserId) {
-        mGuessersThisTurn.add(guesserId);
+    private void createOpponentGuessDialog(String guesserId, boolean correct) {
+        mRoster.recordGuess(guesserId, correct);
+        if (mEventFeed != null) {
+            mEventFeed.postGuess(correct);
+        }
 
-        GameManagerClient gameManagerClient = mCastConnectionManager.getGameManagerClient();
         if (mCastConnectionManager.isConnectedToReceiver()) {
-            GameManagerState state = gameManagerClient.getCurrentState();
-            int numParticipants = state.getPlayersInState(
-                    GameManagerClient.PLAYER_STATE_PLAYING).size();
-            boolean allHaveGuessed = mGuessersThisTurn.size() >= numParticipants - 1;
+            int numParticipants = mRoster.getPlayingCount();
+            boolean allHaveGuessed = mRoster.getGuessCount() >= numParticipants - 1;
             if (isMyTurn() && allHaveGuessed) {
                 // All guesses entered
                 DialogInterface.OnClickListener onClickListener
@@ -314,56 +357,41 @@ public class DrawingFragment extends GameFragment
         }
     }
 
-    /**
-     * Show or hide the word choice list for guessing.
-     *
-     * @param enable true if the list should be shown, false otherwise.
-     */
-    private void enableGuessing(boolean enable) {
-        if (getView() != null) {
-            if (enable) {
-                mListView.setVisibility(View.VISIBLE);
-            } else {
-                mListView.setVisibility(View.INVISIBLE);
-            }
-        }
-    }
-
     /**
      * Begin a turn where the player is guessing what the artist is drawing. Begins a countdown
      * from MAX_TIME to 1 which determines how many points the player will get if and when they
      * make a correct guess,
      */
     private void beginGuessingTurn() {
-        mDrawView.clear();
         mHasGuessed = false;
-        setGuessingUI();
-
-        // Set up the progress dialog
-        mGuessProgress.setProgress(MAX_TIME);
-        mGuessProgressText.setText(String.valueOf(MAX_TIME));
+        mTurnGeneration++;
+        mSecondsLeft = MAX_TIME;
 
         // Decrement from MAX_TIME to 1, once every second
         Runnable decrementProgress = new Runnable() {
             @Override
             public void run() {
-                if (!mHasGuessed) {
-                    int oldProgress = mGuessProgress.getProgress();
-                    if (oldProgress > 1) {
-                        mGuessProgress.setProgress(oldProgress - 1);
-                        mGuessProgressText.setText(String.valueOf(oldProgress - 1));
-                        mGuessProgressHandler.postDelayed(this, 1000L);
-                    } else {
-                        // Time is up
-                        makeGuess(-1);
+                GameTrace.beginSection("DrawingFragment.decrementProgress");
+                try {
+                    if (!mHasGuessed) {
+                        if (mSecondsLeft > 1) {
+                            mSecondsLeft--;
+                            render();
+                            mGuessProgressHandler.postDelayed(this, 1000L);
+                        } else {
+                            // Time is up
+                            makeGuess(-1);
+                        }
                     }
+                } finally {
+                    GameTrace.endSection();
                 }
             }
         };
         mGuessProgressHandler.removeCallbacksAndMessages(null);
         mGuessProgressHandler.postDelayed(decrementProgress, 1000L);
 
-        updateViewVisibility();
+        render();
 
         if (mTurnWords == null) {
             // Send message to others about who is the new player
@@ -372,16 +400,21 @@ public class DrawingFragment extends GameFragment
     }
 
     private void sendPlayerMessage() {
-        GameManagerClient gameManagerClient = mCastConnectionManager.getGameManagerClient();
-        if (mCastConnectionManager.isConnectedToReceiver()) {
-            JSONObject jsonMessage = new JSONObject();
-            try {
-                jsonMessage.put(MESSAGE_PLAYER, gameManagerClient.getLastUsedPlayerId());
-            } catch (JSONException e) {
-                Log.e(TAG, "Error creating JSON message", e);
-                return;
+        GameTrace.beginSection("DrawingFragment.sendPlayerMessage");
+        try {
+            if (mCastConnectionManager.isConnectedToReceiver()) {
+                JSONObject jsonMessage;
+                try {
+                    jsonMessage = GameMessages.newPlayerMessage(
+                            getGameTransport().getLastUsedPlayerId());
+                } catch (JSONException e) {
+                    Log.e(TAG, "Error creating JSON message", e);
+                    return;
+                }
+                sendGameMessage(jsonMessage);
             }
-            sendGameMessage(jsonMessage);
+        } finally {
+            GameTrace.endSection();
         }
     }
 
@@ -389,40 +422,50 @@ public class DrawingFragment extends GameFragment
      * Begin a turn where the player is drawing. Clear the DrawView and show the drawing UI.
      */
     private void beginArtistTurn() {
-        mDrawView.clear();
+        mTurnGeneration++;
+        // The artist does not guess, stop the countdown of a previous guessing turn
+        mGuessProgressHandler.removeCallbacksAndMessages(null);
         // Send a message to the receiver to clear the drawing area
         sendClearMessage();
 
         // Send message to others about who is the artist
         sendArtistMessage();
 
-        setArtistUI();
-        updateViewVisibility();
+        render();
     }
 
     private void sendClearMessage() {
-        JSONObject jsonMessage = new JSONObject();
+        GameTrace.beginSection("DrawingFragment.sendClearMessage");
         try {
-            jsonMessage.put(MESSAGE_CLEAR, 1);
-        } catch (JSONException e) {
-            Log.e(TAG, "Error creating JSON message", e);
-            return;
-        }
-        sendGameMessage(jsonMessage);
-    }
-
-    private void sendArtistMessage() {
-        JSONObject jsonMessage = new JSONObject();
-        GameManagerClient gameManagerClient = mCastConnectionManager.getGameManagerClient();
-        if (mCastConnectionManager.isConnectedToReceiver()) {
-            jsonMessage = new JSONObject();
+            JSONObject jsonMessage;
             try {
-                jsonMessage.put(MESSAGE_ARTIST, gameManagerClient.getLastUsedPlayerId());
+                jsonMessage = GameMessages.newClearMessage();
             } catch (JSONException e) {
                 Log.e(TAG, "Error creating JSON message", e);
                 return;
             }
             sendGameMessage(jsonMessage);
+        } finally {
+            GameTrace.endSection();
+        }
+    }
+
+    private void sendArtistMessage() {
+        GameTrace.beginSection("DrawingFragment.sendArtistMessage");
+        try {
+            if (mCastConnectionManager.isConnectedToReceiver()) {
+                JSONObject jsonMessage;
+                try {
+                    jsonMessage = GameMessages.newArtistMessage(
+                            getGameTransport().getLastUsedPlayerId());
+                } catch (JSONException e) {
+                    Log.e(TAG, "Error creating JSON message", e);
+                    return;
+                }
+                sendGameMessage(jsonMessage);
+            }
+        } finally {
+            GameTrace.endSection();
         }
     }
 
@@ -441,34 +484,22 @@ public class DrawingFragment extends GameFragment
      * until Done is clicked.
      */
     private void onDoneClicked() {
-        // Increment turn number
-        mMatchTurnNumber = mMatchTurnNumber + 1;
-
-        // Choose random word subset and correct word
-        mTurnWords = getRandomWordSubset(MAX_WORDS);
-        mWordIndex = (new Random()).nextInt(mTurnWords.size());
-
-        // Send new turn data to others
-        sendTurnMessage(mMatchTurnNumber);
-
-        beginMyTurn();
-        updateViewVisibility();
-    }
+        GameTrace.beginSection("DrawingFragment.onDoneClicked");
+        try {
+            // Increment turn number
+            mMatchTurnNumber = mMatchTurnNumber + 1;
 
-    /**
-     * Pick a random set of words from the master word list.
-     *
-     * @param numWords the number of words to choose.
-     * @return a list of randomly chosen words.
-     */
-    private List<String> getRandomWordSubset(int numWords) {
-        List<String> result = new ArrayList<>();
+            // Choose random word subset and correct word
+            mTurnWords = mWordSampler.sample(MAX_WORDS);
+            mWordIndex = (new Random()).nextInt(mTurnWords.size());
 
-        Collections.addAll(result, mAllWords);
-        Collections.shuffle(result);
-        result = result.subList(0, numWords);
+            // Send new turn data to others
+            sendTurnMessage(mMatchTurnNumber);
 
-        return result;
+            beginMyTurn();
+        } finally {
+            GameTrace.endSection();
+        }
     }
 
     /**
@@ -481,85 +512,47 @@ public class DrawingFragment extends GameFragment
         sendGuessMessage(position);
 
         // Disable guessing and show result
-        enableGuessing(false);
+        mHasGuessed = true;
+        render();
         createGuessDialog(position, mWordIndex);
     }
 
     private void sendGuessMessage(int position) {
-        JSONObject jsonMessage = new JSONObject();
+        GameTrace.beginSection("DrawingFragment.sendGuessMessage");
         try {
-            jsonMessage.put(MESSAGE_GUESS, position);
-        } catch (JSONException e) {
-            Log.e(TAG, "Error creating JSON message", e);
-            return;
+            JSONObject jsonMessage;
+            try {
+                jsonMessage = GameMessages.newGuessMessage(position);
+            } catch (JSONException e) {
+                Log.e(TAG, "Error creating JSON message", e);
+                return;
+            }
+            sendGameMessage(jsonMessage);
+        } finally {
+            GameTrace.endSection();
         }
-        sendGameMessage(jsonMessage);
-    }
-
-    /**
-     * Show the UI for a non-artist player
-     */
-    private void setGuessingUI() {
-        mAristUIView.setVisibility(View.GONE);
-        mGuesserUIView.setVisibility(View.VISIBLE);
-        mClearDoneLayoutView.setVisibility(View.GONE);
-        mGuessWordView.setVisibility(View.GONE);
-
-        // Disable touch on drawview
-        mDrawView.setTouchEnabled(false);
-        mDrawView.setVisibility(View.GONE);
-        enableGuessing(true);
-
-        // Set words, clear draw view
-        resetWords(mTurnWords);
-        mDrawView.clear();
     }
 
     /**
-     * Show the UI for the player who is currently acting as the artist.
+     * Computes what the fragment shows from the game state, and applies it in one pass. Called
+     * once per game event.
      */
-    private void setArtistUI() {
-        mAristUIView.setVisibility(View.VISIBLE);
-        mGuesserUIView.setVisibility(View.GONE);
-        mClearDoneLayoutView.setVisibility(View.VISIBLE);
-        mGuessWordView.setVisibility(View.VISIBLE);
-
-        mDrawView.setTouchEnabled(true);
-        mDrawView.setVisibility(View.VISIBLE);
-
-        ((TextView) getView().findViewById(R.id.guessWord)).setText(mTurnWords.get(mWordIndex));
-        mDrawView.clear();
-    }
-
-    /**
-     * Set the list of words to display for guessing.
-     */
-    private void resetWords(List<String> words) {
-        if (words != null) {
-            ListView list = (ListView) getView().findViewById(R.id.listView);
-            ArrayAdapter<String> adapter = new ArrayAdapter<String>(getView().getContext(),
-                    R.layout.list_item, R.id.text, words);
-            list.setAdapter(adapter);
+    private void render() {
+        if (mRenderer == null) {
+            return;
         }
+        boolean artist = isMyTurn();
+        String guessWord = (artist && mTurnWords != null) ? mTurnWords.get(mWordIndex) : null;
+        mRenderer.render(new DrawingViewState(artist, mTurnGeneration, guessWord, mTurnWords,
+                !mHasGuessed, mSecondsLeft));
     }
 
     /**
-     * Update the turn order so that each participant has a unique slot.
+     * Rebuild the turn order so that each participant has a unique slot.
      */
     private void updateTurnIndices() {
-        // Turn order is determined by sorting participant IDs, which are consistent across
-        // devices (but not across sessions)
-        GameManagerClient gameManagerClient = mCastConnectionManager.getGameManagerClient();
         if (mCastConnectionManager.isConnectedToReceiver()) {
-            GameManagerState state = gameManagerClient.getCurrentState();
-            ArrayList<String> ids = new ArrayList<>();
-            for (PlayerInfo playerInfo : state.getPlayersInState(
-                    GameManagerClient.PLAYER_STATE_PLAYING)) {
-                ids.add(playerInfo.getPlayerId());
-            }
-            Collections.sort(ids);
-            // Get your turn order
-            mMyTurnIndex = ids.indexOf(gameManagerClient.getLastUsedPlayerId());
+            mRoster.reset(getGameTransport());
         }
     }
 
@@ -575,29 +568,23 @@ public class DrawingFragment extends GameFragment
         }
     }
 
-    private void updateViewVisibility() {
-        getActivity().getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
-
-        // Set UI for either artist or guesser based on turn
-        if (isMyTurn()) {
-            setArtistUI();
-        } else {
-            setGuessingUI();
-        }
-    }
-
     /**
-     * Game state callback.
+     * Player state callback.
      */
-    public void onStateChanged(GameManagerState newState, GameManagerState oldState) {
-        Log.d(TAG, "onStateChanged: ");
-        List<PlayerInfo> players = newState.getPlayersInState(GameManagerClient.PLAYER_STATE_QUIT);
-        if (players.size() > 1) {
-            updateTurnIndices();
-        }
-        players = newState.getPlayersInState(GameManagerClient.PLAYER_STATE_PLAYING);
-        if (players.size() == 1) {
-            mCastConnectionManager.disconnectFromReceiver(true);
+    @Override
+    public void onPlayerStateChanged(String playerId, int newPlayerState, int oldPlayerState) {
+        GameTrace.beginSection("DrawingFragment.onPlayerStateChanged");
+        try {
+            if (mRoster.isInitialized()) {
+                mRoster.onPlayerStateChanged(playerId, newPlayerState);
+            } else {
+                updateTurnIndices();
+            }
+            if (mRoster.getPlayingCount() == 1) {
+                mCastConnectionManager.disconnectFromReceiver(true);
+            }
+        } finally {
+            GameTrace.endSection();
         }
     }
 
@@ -608,36 +595,50 @@ public class DrawingFragment extends GameFragment
      * @param message  JSON message
      */
     public void onGameMessageReceived(String playerId, JSONObject message) {
-        Log.d(TAG,
-                "onGameMessageReceived: playerId=" + playerId + ", message=" + message.toString());
-        if (message.has(MESSAGE_GUESS)) {
-            try {
-                int guess = message.getInt(MESSAGE_GUESS);
-                createOpponentGuessDialog(playerId);
-
-                if (guess == mWordIndex) {
-                    Log.i(TAG, "Player guessed correctly!");
+        GameTrace.beginSection("DrawingFragment.onGameMessageReceived");
+        try {
+            long startNanos = SystemClock.elapsedRealtimeNanos();
+            AppMetrics.MESSAGES_RECEIVED.incrementAndGet();
+            if (message.has(GameMessages.MESSAGE_GUESS)) {
+                try {
+                    int guess = message.getInt(GameMessages.MESSAGE_GUESS);
+                    AppEvents.LOG.log(AppEvents.GUESS_RECEIVED, guess,
+                            (guess == mWordIndex) ? 1 : 0);
+                    createOpponentGuessDialog(playerId, guess == mWordIndex);
+                } catch (JSONException e) {
+                    Log.e(TAG, "onGameMessageReceived", e);
                 }
-            } catch (JSONException e) {
-                Log.e(TAG, "onGameMessageReceived", e);
-            }
-        } else if (message.has(MESSAGE_WORDS)) {
-            try {
-                mMatchTurnNumber = message.getInt(MESSAGE_TURN);
-                mTurnWords = Arrays.asList(message.getString(MESSAGE_WORDS).split("\\s*,\\s*"));
-                mWordIndex = message.getInt(MESSAGE_INDEX);
-                mGuessersThisTurn.clear();
-
-                beginMyTurn();
-            } catch (JSONException e) {
-                Log.e(TAG, "onGameMessageReceived", e);
+            } else if (message.has(GameMessages.MESSAGE_WORDS)) {
+                try {
+                    mMatchTurnNumber = message.getInt(GameMessages.MESSAGE_TURN);
+                    mTurnWords = GameMessages.parseWords(message);
+                    mWordIndex = message.getInt(GameMessages.MESSAGE_INDEX);
+                    mRoster.startTurn();
+                    AppEvents.LOG.log(AppEvents.TURN_RECEIVED, mMatchTurnNumber, mTurnWords.size(),
+                            mWordIndex);
+
+                    beginMyTurn();
+                } catch (JSONException e) {
+                    Log.e(TAG, "onGameMessageReceived", e);
+                }
+            } else {
+                AppEvents.LOG.log(AppEvents.OTHER_MESSAGE_RECEIVED);
             }
+            AppMetrics.MESSAGE_RECEIVE.record(SystemClock.elapsedRealtimeNanos() - startNanos);
+        } finally {
+            GameTrace.endSection();
         }
     }
 
     private void sendGameMessage(JSONObject jsonObject) {
-        if (mCastConnectionManager.getGameManagerClient() != null) {
-            mCastConnectionManager.getGameManagerClient().sendGameMessage(jsonObject);
+        GameTrace.beginSection("DrawingFragment.sendGameMessage");
+        try {
+            long startNanos = SystemClock.elapsedRealtimeNanos();
+            mCastConnectionManager.sendGameMessage(jsonObject);
+            AppMetrics.MESSAGES_SENT.incrementAndGet();
+            AppMetrics.MESSAGE_SEND.record(SystemClock.elapsedRealtimeNanos() - startNanos);
+        } finally {
+            GameTrace.endSection();
         }
     }
 }
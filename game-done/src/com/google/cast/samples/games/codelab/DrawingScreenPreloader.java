@@ -0,0 +1,129 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import android.app.Activity;
+import android.content.res.Resources;
+import android.os.AsyncTask;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Prepares the drawing screen while the player waits in the lobby, so that switching to the game
+ * only has to attach it. The word list is parsed on a background thread, and the layout is
+ * inflated on the main thread the next time it is idle, since views must be created on the thread
+ * that draws them. Must be used on the main thread.
+ */
+public class DrawingScreenPreloader {
+
+    private static final String TAG = "DrawingScreenPreloader";
+
+    // The parsed word list, shared by every activity of the process
+    private static volatile String[] sWords;
+    private static boolean sParsingWords = false;
+
+    private final Activity mActivity;
+    private View mView;
+    private boolean mInflatePending = false;
+
+    private final MessageQueue.IdleHandler mInflateHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            mInflatePending = false;
+            inflate();
+            return false;
+        }
+    };
+
+    public DrawingScreenPreloader(Activity activity) {
+        mActivity = activity;
+    }
+
+    /**
+     * Starts parsing the word list and schedules the inflation of the layout, unless they are
+     * already done or under way.
+     */
+    public void prepare() {
+        if (sWords == null && !sParsingWords) {
+            sParsingWords = true;
+            final Resources resources = mActivity.getResources();
+            AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    sWords = parseWords(resources);
+                }
+            });
+        }
+        if (mView == null && !mInflatePending) {
+            mInflatePending = true;
+            Looper.myQueue().addIdleHandler(mInflateHandler);
+        }
+    }
+
+    /**
+     * Drops the inflated layout and any pending inflation.
+     */
+    public void cancel() {
+        if (mInflatePending) {
+            mInflatePending = false;
+            Looper.myQueue().removeIdleHandler(mInflateHandler);
+        }
+        mView = null;
+    }
+
+    /**
+     * Returns the inflated drawing screen and forgets it, since a view can only be shown once, or
+     * null if it is not ready.
+     */
+    public View takeView() {
+        View view = mView;
+        mView = null;
+        return view;
+    }
+
+    /**
+     * Returns the word list, parsing it on the calling thread if the background parse has not
+     * finished yet.
+     */
+    public String[] getWords() {
+        String[] words = sWords;
+        if (words == null) {
+            words = parseWords(mActivity.getResources());
+            sWords = words;
+        }
+        return words;
+    }
+
+    private void inflate() {
+        if (mActivity.isFinishing() || mActivity.isDestroyed()) {
+            return;
+        }
+        GameTrace.beginSection("DrawingScreenPreloader.inflate");
+        try {
+            ViewGroup container = (ViewGroup) mActivity.findViewById(R.id.fragment_container);
+            mView = mActivity.getLayoutInflater()
+                    .inflate(R.layout.drawing_fragment, container, false);
+            Log.d(TAG, "Drawing screen inflated");
+        } finally {
+            GameTrace.endSection();
+        }
+    }
+
+    private static String[] parseWords(Resources resources) {
+        return resources.getString(R.string.words).split("\\s*,\\s*");
+    }
+}
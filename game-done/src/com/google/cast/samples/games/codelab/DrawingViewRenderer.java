@@ -0,0 +1,90 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import android.text.TextUtils;
+import android.view.View;
+import android.widget.ListView;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+/**
+ * Applies a {@link DrawingViewState} to the views of the {@link DrawingFragment}, touching only the
+ * views whose properties differ from the last state applied, so that a turn transition costs a
+ * single layout pass. A renderer is bound to one view hierarchy and must be replaced along with
+ * it.
+ */
+public class DrawingViewRenderer {
+
+    private final View mArtistView;
+    private final View mClearDoneLayoutView;
+    private final TextView mGuessWordView;
+    private final View mGuesserView;
+    private final ListView mListView;
+    private final ProgressBar mGuessProgress;
+    private final TextView mGuessProgressText;
+    private final DrawView mDrawView;
+    private final GuessWordAdapter mWordAdapter;
+
+    // The last state applied, or null if none yet
+    private DrawingViewState mState;
+
+    /**
+     * @param root        the view hierarchy of the fragment.
+     * @param wordAdapter the adapter showing the guess words, which outlives the views.
+     */
+    public DrawingViewRenderer(View root, GuessWordAdapter wordAdapter) {
+        mArtistView = root.findViewById(R.id.artistUI);
+        mClearDoneLayoutView = root.findViewById(R.id.clearDoneLayout);
+        mGuessWordView = (TextView) root.findViewById(R.id.guessWord);
+        mGuesserView = root.findViewById(R.id.guesserUI);
+        mListView = (ListView) root.findViewById(R.id.listView);
+        mGuessProgress = (ProgressBar) root.findViewById(R.id.guessProgress);
+        mGuessProgressText = (TextView) root.findViewById(R.id.guessProgressText);
+        mDrawView = (DrawView) root.findViewById(R.id.drawView);
+        mWordAdapter = wordAdapter;
+        mListView.setAdapter(wordAdapter);
+    }
+
+    public void render(DrawingViewState state) {
+        DrawingViewState old = mState;
+        mState = state;
+
+        if (old == null || old.isArtist() != state.isArtist()) {
+            int artistVisibility = state.isArtist() ? View.VISIBLE : View.GONE;
+            mArtistView.setVisibility(artistVisibility);
+            mClearDoneLayoutView.setVisibility(artistVisibility);
+            mGuessWordView.setVisibility(artistVisibility);
+            mGuesserView.setVisibility(state.isArtist() ? View.GONE : View.VISIBLE);
+            mDrawView.setTouchEnabled(state.isArtist());
+            mDrawView.setVisibility(artistVisibility);
+        }
+        if (old == null || old.getTurnGeneration() != state.getTurnGeneration()) {
+            mDrawView.clear();
+        }
+        if (old == null || !TextUtils.equals(old.getGuessWord(), state.getGuessWord())) {
+            mGuessWordView.setText(state.getGuessWord());
+        }
+        if (state.getWords() != null && (old == null || old.getWords() != state.getWords())) {
+            mWordAdapter.setWords(state.getWords());
+        }
+        if (old == null || old.isGuessingEnabled() != state.isGuessingEnabled()) {
+            mListView.setVisibility(state.isGuessingEnabled() ? View.VISIBLE : View.INVISIBLE);
+        }
+        if (old == null || old.getSecondsLeft() != state.getSecondsLeft()) {
+            mGuessProgress.setProgress(state.getSecondsLeft());
+            mGuessProgressText.setText(String.valueOf(state.getSecondsLeft()));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import java.util.List;
+
+/**
+ * Everything the {@link DrawingFragment} shows, computed once per game event and applied by a
+ * {@link DrawingViewRenderer}.
+ */
+public final class DrawingViewState {
+
+    private final boolean mArtist;
+    private final int mTurnGeneration;
+    private final String mGuessWord;
+    private final List<String> mWords;
+    private final boolean mGuessingEnabled;
+    private final int mSecondsLeft;
+
+    /**
+     * @param artist          true to show the artist UI, false for the guesser UI.
+     * @param turnGeneration  changes every time a turn begins, to clear the drawing.
+     * @param guessWord       the word to draw, shown to the artist.
+     * @param words           the words to guess from, or null to keep the current ones.
+     * @param guessingEnabled true if the guesser can still pick a word.
+     * @param secondsLeft     the time left to guess.
+     */
+    public DrawingViewState(boolean artist, int turnGeneration, String guessWord,
+            List<String> words, boolean guessingEnabled, int secondsLeft) {
+        mArtist = artist;
+        mTurnGeneration = turnGeneration;
+        mGuessWord = guessWord;
+        mWords = words;
+        mGuessingEnabled = guessingEnabled;
+        mSecondsLeft = secondsLeft;
+    }
+
+    public boolean isArtist() {
+        return mArtist;
+    }
+
+    public int getTurnGeneration() {
+        return mTurnGeneration;
+    }
+
+    public String getGuessWord() {
+        return mGuessWord;
+    }
+
+    public List<String> getWords() {
+        return mWords;
+    }
+
+    public boolean isGuessingEnabled() {
+        return mGuessingEnabled;
+    }
+
+    public int getSecondsLeft() {
+        return mSecondsLeft;
+    }
+}
@@ -0,0 +1,151 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.View;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A feed of short game notifications shown in the layout instead of dialogs. Notifications posted
+ * during a frame are shown together on the next one, with the guesses of other players folded into
+ * a single line such as "Guesses: 3, correct: 1". The feed reuses a fixed set of rows, newest
+ * first, and hides each row a few seconds after it was shown. Must be used on the main thread.
+ */
+public class EventFeed extends FrameCoalescer {
+
+    private static final long ROW_DURATION_MS = 4000;
+
+    private final TextView[] mRows;
+    // Uptime at which each row is hidden
+    private final long[] mRowExpiries;
+    private final String mGuessesFormat;
+
+    private final List<CharSequence> mPendingMessages = new ArrayList<>();
+    private int mPendingGuesses = 0;
+    private int mPendingCorrectGuesses = 0;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mExpireRunnable = new Runnable() {
+        @Override
+        public void run() {
+            expireRows();
+        }
+    };
+
+    /**
+     * @param rows the views to show the notifications in, newest first.
+     */
+    public EventFeed(TextView[] rows) {
+        mRows = rows;
+        mRowExpiries = new long[rows.length];
+        mGuessesFormat = rows[0].getResources().getString(R.string.players_guessed);
+        for (TextView row : rows) {
+            row.setVisibility(View.GONE);
+        }
+    }
+
+    /**
+     * Shows a notification on the next frame.
+     */
+    public void post(CharSequence message) {
+        mPendingMessages.add(message);
+        schedule();
+    }
+
+    /**
+     * Counts a guess of another player, shown with the other guesses of the same frame.
+     */
+    public void postGuess(boolean correct) {
+        mPendingGuesses++;
+        if (correct) {
+            mPendingCorrectGuesses++;
+        }
+        schedule();
+    }
+
+    /**
+     * Drops the pending and shown notifications.
+     */
+    public void clear() {
+        cancel();
+        mPendingMessages.clear();
+        mPendingGuesses = 0;
+        mPendingCorrectGuesses = 0;
+        mHandler.removeCallbacks(mExpireRunnable);
+        for (TextView row : mRows) {
+            row.setVisibility(View.GONE);
+        }
+    }
+
+    @Override
+    protected void onFrame() {
+        if (mPendingGuesses > 0) {
+            addRow(String.format(mGuessesFormat, mPendingGuesses, mPendingCorrectGuesses));
+            mPendingGuesses = 0;
+            mPendingCorrectGuesses = 0;
+        }
+        for (CharSequence message : mPendingMessages) {
+            addRow(message);
+        }
+        mPendingMessages.clear();
+        scheduleExpiry();
+    }
+
+    /**
+     * Shows a message in the first row, moving the shown ones down and dropping the oldest.
+     */
+    private void addRow(CharSequence message) {
+        for (int i = mRows.length - 1; i > 0; i--) {
+            mRows[i].setText(mRows[i - 1].getText());
+            mRows[i].setVisibility(mRows[i - 1].getVisibility());
+            mRowExpiries[i] = mRowExpiries[i - 1];
+        }
+        mRows[0].setText(message);
+        mRows[0].setVisibility(View.VISIBLE);
+        mRowExpiries[0] = SystemClock.uptimeMillis() + ROW_DURATION_MS;
+    }
+
+    private void expireRows() {
+        long now = SystemClock.uptimeMillis();
+        for (int i = 0; i < mRows.length; i++) {
+            if (mRows[i].getVisibility() == View.VISIBLE && mRowExpiries[i] <= now) {
+                mRows[i].setVisibility(View.GONE);
+            }
+        }
+        scheduleExpiry();
+    }
+
+    /**
+     * Schedules the next expiry at the earliest one of the shown rows, so that new rows do not
+     * keep the older ones on screen.
+     */
+    private void scheduleExpiry() {
+        mHandler.removeCallbacks(mExpireRunnable);
+        long nextExpiry = Long.MAX_VALUE;
+        for (int i = 0; i < mRows.length; i++) {
+            if (mRows[i].getVisibility() == View.VISIBLE) {
+                nextExpiry = Math.min(nextExpiry, mRowExpiries[i]);
+            }
+        }
+        if (nextExpiry != Long.MAX_VALUE) {
+            mHandler.postAtTime(mExpireRunnable, nextExpiry);
+        }
+    }
+}
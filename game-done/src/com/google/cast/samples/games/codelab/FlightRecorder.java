@@ -0,0 +1,104 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Writes the recent {@link AppEvents} to app-private storage when a session dies, so that there is
+ * a record of what happened just before. The events are captured when {@link #dump} is called and
+ * written in the background, keeping the last {@link #MAX_DUMPS} dumps. Dumps can be pulled with
+ * {@code adb shell run-as com.google.cast.samples.games.codelab} and decoded with
+ * {@link EventLogDecoder}.
+ */
+public final class FlightRecorder {
+
+    private static final String TAG = "FlightRecorder";
+    private static final String DIRECTORY_NAME = "flight";
+    private static final int MAX_DUMPS = 5;
+
+    private FlightRecorder() {
+    }
+
+    /**
+     * Dumps the recent events.
+     *
+     * @param reason a short name for why the dump is taken, used in the file name.
+     */
+    public static void dump(Context context, String reason) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            AppEvents.LOG.writeTo(bytes);
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to encode the events", e);
+            return;
+        }
+        final File directory = new File(context.getFilesDir(), DIRECTORY_NAME);
+        final File file = new File(directory, String.format(Locale.US, "flight-%d-%s.bin",
+                System.currentTimeMillis(), reason));
+        AsyncTask.SERIAL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(directory, file, bytes);
+            }
+        });
+    }
+
+    private static void write(File directory, File file, ByteArrayOutputStream bytes) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e(TAG, "Unable to create " + directory);
+            return;
+        }
+        FileOutputStream output = null;
+        try {
+            output = new FileOutputStream(file);
+            bytes.writeTo(output);
+            Log.i(TAG, "Wrote " + bytes.size() + " bytes to " + file);
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to write " + file, e);
+        } finally {
+            if (output != null) {
+                try {
+                    output.close();
+                } catch (IOException e) {
+                    Log.w(TAG, "Unable to close " + file, e);
+                }
+            }
+        }
+        deleteOldDumps(directory);
+    }
+
+    private static void deleteOldDumps(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null || files.length <= MAX_DUMPS) {
+            return;
+        }
+        // The names start with the time of the dump
+        Arrays.sort(files);
+        for (int i = 0; i < files.length - MAX_DUMPS; i++) {
+            if (!files[i].delete()) {
+                Log.w(TAG, "Unable to delete " + files[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import android.view.Choreographer;
+
+/**
+ * Runs {@link #onFrame} at most once per frame no matter how many times {@link #schedule} is
+ * called before the frame, so that bursts of notifications are handled once. The calls folded
+ * into a pending frame are counted in {@link AppMetrics}. Must be created and used on the main
+ * thread.
+ */
+public abstract class FrameCoalescer implements Choreographer.FrameCallback {
+
+    private final Choreographer mChoreographer = Choreographer.getInstance();
+    private boolean mScheduled = false;
+
+    /**
+     * Requests a call to {@link #onFrame} on the next frame.
+     */
+    public void schedule() {
+        if (mScheduled) {
+            AppMetrics.NOTIFICATIONS_COALESCED.incrementAndGet();
+            return;
+        }
+        mScheduled = true;
+        mChoreographer.postFrameCallback(this);
+    }
+
+    /**
+     * Drops a pending call to {@link #onFrame}, if any.
+     */
+    public void cancel() {
+        if (mScheduled) {
+            mScheduled = false;
+            mChoreographer.removeFrameCallback(this);
+        }
+    }
+
+    /**
+     * Runs a pending call to {@link #onFrame} right away instead of waiting for the frame.
+     */
+    public void flush() {
+        if (mScheduled) {
+            cancel();
+            onFrame();
+        }
+    }
+
+    /**
+     * Returns true if a call to {@link #onFrame} is pending.
+     */
+    public boolean isScheduled() {
+        return mScheduled;
+    }
+
+    @Override
+    public final void doFrame(long frameTimeNanos) {
+        mScheduled = false;
+        onFrame();
+    }
+
+    /**
+     * Handles everything that was scheduled since the last frame.
+     */
+    protected abstract void onFrame();
+}
@@ -0,0 +1,127 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import android.view.Choreographer;
+
+import java.util.Locale;
+
+/**
+ * Records the timing of every frame with {@link Choreographer} frame callbacks while enabled:
+ * the interval between frames, janky frames, which take longer than one and a half refresh
+ * periods, and the time from a touch event to the end of the draw that shows it. Everything goes
+ * into {@link AppMetrics}, so that runs can be reset and exported from {@link MetricsActivity}
+ * to compare rendering strategies on the same device. Must be used on the main thread.
+ */
+public class FrameTimingRecorder implements Choreographer.FrameCallback {
+
+    // Frames between two updates of the overlay text
+    private static final int OVERLAY_UPDATE_FRAMES = 30;
+
+    private static boolean sEnabled = false;
+
+    private final Choreographer mChoreographer = Choreographer.getInstance();
+    private final long mJankThresholdNanos;
+    private boolean mRunning = false;
+    private long mLastFrameTimeNanos = 0;
+    private int mFramesSinceOverlayUpdate = 0;
+    private String mOverlayText = "";
+
+    /**
+     * @param refreshRate the refresh rate of the display, in frames per second.
+     */
+    public FrameTimingRecorder(float refreshRate) {
+        mJankThresholdNanos = (long) (1.5e9 / refreshRate);
+    }
+
+    /**
+     * Turns the recording and the overlay on or off for every recorder.
+     */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * Starts recording if enabled and not already running.
+     */
+    public void start() {
+        if (sEnabled && !mRunning) {
+            mRunning = true;
+            mLastFrameTimeNanos = 0;
+            mChoreographer.postFrameCallback(this);
+        }
+    }
+
+    public void stop() {
+        if (mRunning) {
+            mRunning = false;
+            mChoreographer.removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!sEnabled) {
+            mRunning = false;
+            return;
+        }
+        if (mLastFrameTimeNanos != 0) {
+            long intervalNanos = frameTimeNanos - mLastFrameTimeNanos;
+            AppMetrics.FRAMES.incrementAndGet();
+            AppMetrics.FRAME_INTERVAL.record(intervalNanos);
+            if (intervalNanos > mJankThresholdNanos) {
+                AppMetrics.JANKY_FRAMES.incrementAndGet();
+            }
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        if (++mFramesSinceOverlayUpdate >= OVERLAY_UPDATE_FRAMES) {
+            mFramesSinceOverlayUpdate = 0;
+            updateOverlayText();
+        }
+        mChoreographer.postFrameCallback(this);
+    }
+
+    /**
+     * Records the time from a touch event to the end of the draw showing its result.
+     *
+     * @param touchTimeNanos the time of the touch event, in the {@link System#nanoTime} base.
+     */
+    public void onTouchDrawn(long touchTimeNanos) {
+        if (mRunning) {
+            AppMetrics.TOUCH_TO_FRAME.record(System.nanoTime() - touchTimeNanos);
+        }
+    }
+
+    /**
+     * Returns a one line summary of the frame timings to draw over the view, or an empty string
+     * if not running.
+     */
+    public String getOverlayText() {
+        return mRunning ? mOverlayText : "";
+    }
+
+    private void updateOverlayText() {
+        mOverlayText = String.format(Locale.US,
+                "frame p50=%.1fms p99=%.1fms janky=%d/%d touch p50=%.1fms p99=%.1fms",
+                AppMetrics.FRAME_INTERVAL.getPercentileNanos(50) / 1e6,
+                AppMetrics.FRAME_INTERVAL.getPercentileNanos(99) / 1e6,
+                AppMetrics.JANKY_FRAMES.get(), AppMetrics.FRAMES.get(),
+                AppMetrics.TOUCH_TO_FRAME.getPercentileNanos(50) / 1e6,
+                AppMetrics.TOUCH_TO_FRAME.getPercentileNanos(99) / 1e6);
+    }
+}
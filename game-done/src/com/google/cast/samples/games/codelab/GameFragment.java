@@ -13,21 +13,18 @@
 // limitations under the License.
 package com.google.cast.samples.games.codelab;
 
-import com.google.android.gms.cast.games.GameManagerClient;
-import com.google.android.gms.cast.games.GameManagerState;
+import com.google.android.gms.cast.CastDevice;
 
 import org.json.JSONObject;
 
 import android.app.Fragment;
 import android.os.Bundle;
 
-import java.util.Observable;
-import java.util.Observer;
-
 /**
  * A base class for all the fragments in the game.
  */
-public class GameFragment extends Fragment implements Observer, GameManagerClient.Listener {
+public class GameFragment extends Fragment
+        implements CastConnectionManager.ConnectionListener, GameTransport.Listener {
 
     private static final String TAG = "GameFragment";
 
@@ -43,33 +40,116 @@ public class GameFragment extends Fragment implements Observer, GameManagerClien
     public void onActivityCreated(Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
 
-        mCastConnectionManager = ((MainActivity) getActivity()).getCastConnectionManager();
-        mCastConnectionManager.addObserver(this);
-        if (mCastConnectionManager.getGameManagerClient() != null) {
-            mCastConnectionManager.getGameManagerClient().setListener(this);
+        CastConnectionManager castConnectionManager =
+                ((MainActivity) getActivity()).getCastConnectionManager();
+        if (castConnectionManager != null) {
+            setCastConnectionManager(castConnectionManager);
+        }
+    }
+
+    /**
+     * Starts listening to the cast connection. Called when the activity is created, or later by
+     * {@link MainActivity} if the connection manager did not exist yet at that point.
+     */
+    public void setCastConnectionManager(CastConnectionManager castConnectionManager) {
+        if (mCastConnectionManager != null) {
+            mCastConnectionManager.removeConnectionListener(this);
+        }
+        mCastConnectionManager = castConnectionManager;
+        mCastConnectionManager.addConnectionListener(this);
+        if (getGameTransport() != null) {
+            getGameTransport().setListener(this);
         }
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
-        mCastConnectionManager.deleteObserver(this);
+        if (mCastConnectionManager != null) {
+            mCastConnectionManager.removeConnectionListener(this);
+        }
     }
 
     /**
-     * GameManagerClient observer callback.
+     * Cast device selected callback.
      */
     @Override
-    public void update(Observable object, Object data) {
+    public void onRouteSelected(CastDevice device) {
         // no-op
     }
 
     /**
-     * Game state callback handler.
+     * Google API client connected callback.
      */
     @Override
-    public void onStateChanged(GameManagerState newState,
-            GameManagerState oldState) {
+    public void onApiClientConnected() {
+        // no-op
+    }
+
+    /**
+     * Receiver application launched callback.
+     */
+    @Override
+    public void onApplicationLaunched(String sessionId) {
+        // no-op
+    }
+
+    /**
+     * Game transport ready callback. The fragment on screen keeps listening to the game when the
+     * transport is replaced after a reconnection.
+     */
+    @Override
+    public void onGameTransportReady(GameTransport transport) {
+        if (isResumed()) {
+            transport.setListener(this);
+        }
+    }
+
+    /**
+     * Cast connection torn down callback.
+     */
+    @Override
+    public void onDisconnected(int cause) {
+        // no-op
+    }
+
+    /**
+     * Player joined callback handler.
+     */
+    @Override
+    public void onPlayerJoined(String playerId) {
+        // no-op
+    }
+
+    /**
+     * Player left callback handler.
+     */
+    @Override
+    public void onPlayerLeft(String playerId) {
+        // no-op
+    }
+
+    /**
+     * Player state callback handler.
+     */
+    @Override
+    public void onPlayerStateChanged(String playerId, int newPlayerState, int oldPlayerState) {
+        // no-op
+    }
+
+    /**
+     * Lobby state callback handler.
+     */
+    @Override
+    public void onLobbyStateChanged(int newLobbyState, int oldLobbyState) {
+        // no-op
+    }
+
+    /**
+     * Gameplay state callback handler.
+     */
+    @Override
+    public void onGameplayStateChanged(int newGameplayState, int oldGameplayState) {
         // no-op
     }
 
@@ -80,4 +160,14 @@ public class GameFragment extends Fragment implements Observer, GameManagerClien
     public void onGameMessageReceived(String playerId, JSONObject message) {
         // no-op
     }
+
+    /**
+     * Returns the transport to the game, or null if not connected to the receiver.
+     */
+    protected GameTransport getGameTransport() {
+        if (mCastConnectionManager == null) {
+            return null;
+        }
+        return mCastConnectionManager.getGameTransport();
+    }
 }
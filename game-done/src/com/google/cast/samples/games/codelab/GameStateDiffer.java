@@ -0,0 +1,74 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import com.google.android.gms.cast.games.GameManagerState;
+import com.google.android.gms.cast.games.PlayerInfo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Computes what changed between two GameManagerStates and reports it as individual player, lobby
+ * and gameplay events, so that listeners can react to the change instead of recomputing from the
+ * full state. The Game Manager states have the same values as the GameStates constants.
+ */
+public class GameStateDiffer {
+
+    private GameStateDiffer() {
+    }
+
+    /**
+     * Compares two states and reports the differences to the listener.
+     *
+     * @param newState the current state.
+     * @param oldState the previous state, or null if there is none, in which case everything in
+     *                 the new state is reported as a change.
+     */
+    public static void diff(GameManagerState newState, GameManagerState oldState,
+            GameStateListener listener) {
+        Collection<String> changedPlayers;
+        if (oldState == null) {
+            changedPlayers = new ArrayList<>();
+            for (PlayerInfo playerInfo : newState.getPlayers()) {
+                changedPlayers.add(playerInfo.getPlayerId());
+            }
+        } else {
+            changedPlayers = newState.getListOfChangedPlayers(oldState);
+        }
+
+        for (String playerId : changedPlayers) {
+            int newPlayerState = getPlayerState(newState, playerId);
+            int oldPlayerState = getPlayerState(oldState, playerId);
+            // Does nothing if only the player data changed.
+            GameStates.dispatchPlayerStateChanged(listener, playerId, newPlayerState,
+                    oldPlayerState);
+        }
+
+        if (oldState == null || newState.hasLobbyStateChanged(oldState)) {
+            listener.onLobbyStateChanged(newState.getLobbyState(), (oldState == null)
+                    ? GameStates.LOBBY_STATE_UNKNOWN : oldState.getLobbyState());
+        }
+        if (oldState == null || newState.hasGameplayStateChanged(oldState)) {
+            listener.onGameplayStateChanged(newState.getGameplayState(), (oldState == null)
+                    ? GameStates.GAMEPLAY_STATE_UNKNOWN : oldState.getGameplayState());
+        }
+    }
+
+    private static int getPlayerState(GameManagerState state, String playerId) {
+        PlayerInfo playerInfo = (state == null) ? null : state.getPlayer(playerId);
+        return (playerInfo == null)
+                ? GameStates.PLAYER_STATE_UNKNOWN : playerInfo.getPlayerState();
+    }
+}
@@ -0,0 +1,72 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Named sections around the hot paths of the game, shown in system traces when enabled. Turning
+ * the sections on and off takes effect right away; while off, a section only updates a few
+ * static fields. The outermost section of a message also names the running callback for the
+ * {@link StallWatchdog}, so that a stall is blamed on the entry point rather than on a section
+ * nested in it. Must be used on the main thread, and every {@link #beginSection} must be matched
+ * by an {@link #endSection}.
+ */
+public final class GameTrace {
+
+    private static boolean sEnabled = false;
+
+    // Number of sections begun in the trace and not ended yet, so that sections begun before the
+    // trace was turned off are still ended, and those begun before it was turned on are not
+    private static int sOpenSections = 0;
+
+    // Number of sections begun and not ended yet, whether traced or not
+    private static int sDepth = 0;
+
+    private GameTrace() {
+    }
+
+    /**
+     * Turns the sections on or off. They are only supported from API 18 and ignored before.
+     */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    public static void beginSection(String name) {
+        if (sDepth == 0) {
+            StallWatchdog.noteCallback(name);
+        }
+        sDepth++;
+        if (sEnabled) {
+            Trace.beginSection(name);
+            sOpenSections++;
+        }
+    }
+
+    public static void endSection() {
+        if (sDepth > 0) {
+            sDepth--;
+        }
+        if (sOpenSections > 0) {
+            sOpenSections--;
+            Trace.endSection();
+        }
+    }
+}
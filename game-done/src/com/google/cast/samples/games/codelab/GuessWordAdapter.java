@@ -0,0 +1,105 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The words to guess from, kept in one adapter for the whole game. Each word has a stable id, its
+ * index in the dictionary, so that the list keeps its rows when the turn words change: rows are
+ * recycled rather than inflated again, and a row only has its text set when it shows a different
+ * word than before.
+ */
+public class GuessWordAdapter extends BaseAdapter {
+
+    // Stable id of every word, words missing from the dictionary get ids after it
+    private final Map<String, Long> mWordIds = new HashMap<>();
+    private List<String> mWords = Collections.emptyList();
+    private final List<Long> mIds = new ArrayList<>();
+
+    /**
+     * @param dictionary all the words the turn words are picked from.
+     */
+    public GuessWordAdapter(String[] dictionary) {
+        for (int i = 0; i < dictionary.length; i++) {
+            mWordIds.put(dictionary[i], (long) i);
+        }
+    }
+
+    /**
+     * Shows new words. Does nothing if they are the words already shown.
+     */
+    public void setWords(List<String> words) {
+        if (words.equals(mWords)) {
+            return;
+        }
+        mWords = words;
+        mIds.clear();
+        for (String word : words) {
+            Long id = mWordIds.get(word);
+            if (id == null) {
+                id = (long) mWordIds.size();
+                mWordIds.put(word, id);
+            }
+            mIds.add(id);
+        }
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public int getCount() {
+        return mWords.size();
+    }
+
+    @Override
+    public String getItem(int position) {
+        return mWords.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mIds.get(position);
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        View row = convertView;
+        if (row == null) {
+            row = LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.list_item, parent, false);
+            row.setTag(row.findViewById(R.id.text));
+        }
+        TextView text = (TextView) row.getTag();
+        String word = mWords.get(position);
+        if (!word.equals(text.getText().toString())) {
+            text.setText(word);
+        }
+        return row;
+    }
+}
@@ -13,11 +13,6 @@
 // limitations under the License.
 package com.google.cast.samples.games.codelab;
 
-import com.google.android.gms.cast.games.GameManagerClient;
-import com.google.android.gms.cast.games.GameManagerState;
-import com.google.android.gms.common.api.PendingResult;
-import com.google.android.gms.common.api.ResultCallback;
-
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -41,6 +36,23 @@ public class LobbyFragment extends GameFragment {
     private Button mJoinStartButton;
     private ProgressBar mSpinner;
 
+    // Result of the ready and playing requests
+    private final GameTransport.RequestCallback mRequestCallback =
+            new GameTransport.RequestCallback() {
+                @Override
+                public void onRequestSucceeded(String playerId, int playerState) {
+                    ((MainActivity) getActivity()).setPlayerState(playerState);
+                    updateView();
+                }
+
+                @Override
+                public void onRequestFailed(String errorMessage) {
+                    mCastConnectionManager.disconnectFromReceiver(false);
+                    Utils.showErrorDialog(getActivity(), errorMessage);
+                    updateView();
+                }
+            };
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -76,11 +88,11 @@ public class LobbyFragment extends GameFragment {
      */
     private void onJoinStartClicked() {
         int playerState = ((MainActivity) getActivity()).getPlayerState();
-        if (playerState == GameManagerClient.PLAYER_STATE_AVAILABLE
-                || playerState == GameManagerClient.PLAYER_STATE_PLAYING) {
+        if (playerState == GameStates.PLAYER_STATE_AVAILABLE
+                || playerState == GameStates.PLAYER_STATE_PLAYING) {
             ((MainActivity) getActivity()).setPlayerName(mNameEditText.getText().toString());
             sendPlayerReadyRequest();
-        } else if (playerState == GameManagerClient.PLAYER_STATE_READY) {
+        } else if (playerState == GameStates.PLAYER_STATE_READY) {
             sendPlayerPlayingRequest();
         }
         updateView();
@@ -90,7 +102,6 @@ public class LobbyFragment extends GameFragment {
      * Change the player state to PLAYER_STATE_READY.
      */
     public void sendPlayerReadyRequest() {
-        final GameManagerClient gameManagerClient = mCastConnectionManager.getGameManagerClient();
         if (mCastConnectionManager.isConnectedToReceiver()) {
             // Send player name to the receiver
             JSONObject jsonMessage = new JSONObject();
@@ -100,23 +111,7 @@ public class LobbyFragment extends GameFragment {
                 Log.e(TAG, "Error creating JSON message", e);
                 return;
             }
-            PendingResult<GameManagerClient.GameManagerResult> result =
-                    gameManagerClient.sendPlayerReadyRequest(jsonMessage);
-            result.setResultCallback(new ResultCallback<GameManagerClient.GameManagerResult>() {
-                @Override
-                public void onResult(final GameManagerClient.GameManagerResult gameManagerResult) {
-                    if (gameManagerResult.getStatus().isSuccess()) {
-                        ((MainActivity) getActivity())
-                                .setPlayerState(gameManagerClient.getCurrentState().getPlayer(
-                                        gameManagerResult.getPlayerId()).getPlayerState());
-                    } else {
-                        mCastConnectionManager.disconnectFromReceiver(false);
-                        Utils.showErrorDialog(getActivity(),
-                                gameManagerResult.getStatus().getStatusMessage());
-                    }
-                    updateView();
-                }
-            });
+            getGameTransport().sendPlayerReadyRequest(jsonMessage, mRequestCallback);
         }
         updateView();
     }
@@ -125,29 +120,37 @@ public class LobbyFragment extends GameFragment {
      * Change the player state to PLAYER_STATE_PLAYING.
      */
     public void sendPlayerPlayingRequest() {
-        final GameManagerClient gameManagerClient = mCastConnectionManager.getGameManagerClient();
         if (mCastConnectionManager.isConnectedToReceiver()) {
-            PendingResult<GameManagerClient.GameManagerResult> result =
-                    gameManagerClient.sendPlayerPlayingRequest(null);
-            result.setResultCallback(new ResultCallback<GameManagerClient.GameManagerResult>() {
-                @Override
-                public void onResult(final GameManagerClient.GameManagerResult gameManagerResult) {
-                    if (gameManagerResult.getStatus().isSuccess()) {
-                        ((MainActivity) getActivity())
-                                .setPlayerState(gameManagerClient.getCurrentState().getPlayer(
-                                        gameManagerResult.getPlayerId()).getPlayerState());
-                    } else {
-                        mCastConnectionManager.disconnectFromReceiver(false);
-                        Utils.showErrorDialog(getActivity(),
-                                gameManagerResult.getStatus().getStatusMessage());
-                    }
-                    updateView();
-                }
-            });
+            getGameTransport().sendPlayerPlayingRequest(null, mRequestCallback);
         }
         updateView();
     }
 
+    /**
+     * Lobby state callback. Only the join/start controls depend on the lobby state.
+     */
+    @Override
+    public void onLobbyStateChanged(int newLobbyState, int oldLobbyState) {
+        if (getView() == null) {
+            return;
+        }
+        updateLobbyView(newLobbyState);
+    }
+
+    /**
+     * Player state callback. Follows the local player when the receiver moves it to another
+     * state, for example when another player starts the game.
+     */
+    @Override
+    public void onPlayerStateChanged(String playerId, int newPlayerState, int oldPlayerState) {
+        if (getActivity() == null || !mCastConnectionManager.isConnectedToReceiver()) {
+            return;
+        }
+        if (playerId.equals(getGameTransport().getLastUsedPlayerId())) {
+            ((MainActivity) getActivity()).setPlayerState(newPlayerState);
+        }
+    }
+
     /**
      * Update the UI based on the current lobby and player state. The player has to first join
      * the lobby and then start the game.
@@ -156,22 +159,27 @@ public class LobbyFragment extends GameFragment {
         if (((MainActivity) getActivity()).getPlayerName() == null) {
             mNameEditText.setText("");
         }
-        int playerState = ((MainActivity) getActivity()).getPlayerState();
-        GameManagerClient gameManagerClient = mCastConnectionManager.getGameManagerClient();
         if (mCastConnectionManager.isConnectedToReceiver()) {
-            GameManagerState gameManagerState = gameManagerClient.getCurrentState();
-            if (gameManagerState.getLobbyState() == GameManagerClient.LOBBY_STATE_OPEN) {
-                mJoinStartButton.setVisibility(View.VISIBLE);
-                mSpinner.setVisibility(View.GONE);
-                if (playerState == GameManagerClient.PLAYER_STATE_AVAILABLE) {
-                    mJoinStartButton.setText(R.string.button_join);
-                } else if (playerState == GameManagerClient.PLAYER_STATE_READY) {
-                    mJoinStartButton.setText(R.string.button_start);
-                }
-            } else {
-                mJoinStartButton.setVisibility(View.GONE);
-                mSpinner.setVisibility(View.VISIBLE);
+            updateLobbyView(getGameTransport().getLobbyState());
+        }
+    }
+
+    /**
+     * Update the join/start controls for the given lobby state.
+     */
+    private void updateLobbyView(int lobbyState) {
+        int playerState = ((MainActivity) getActivity()).getPlayerState();
+        if (lobbyState == GameStates.LOBBY_STATE_OPEN) {
+            mJoinStartButton.setVisibility(View.VISIBLE);
+            mSpinner.setVisibility(View.GONE);
+            if (playerState == GameStates.PLAYER_STATE_AVAILABLE) {
+                mJoinStartButton.setText(R.string.button_join);
+            } else if (playerState == GameStates.PLAYER_STATE_READY) {
+                mJoinStartButton.setText(R.string.button_start);
             }
+        } else {
+            mJoinStartButton.setVisibility(View.GONE);
+            mSpinner.setVisibility(View.VISIBLE);
         }
     }
 
@@ -13,41 +13,59 @@
 // limitations under the License.
 package com.google.cast.samples.games.codelab;
 
-import com.google.android.gms.cast.games.GameManagerClient;
-import com.google.android.gms.common.api.PendingResult;
-import com.google.android.gms.common.api.ResultCallback;
+import com.google.android.gms.cast.CastDevice;
 
 import android.app.Fragment;
 import android.app.FragmentTransaction;
+import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.SystemClock;
 import android.support.v4.view.MenuItemCompat;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.app.MediaRouteActionProvider;
 import android.support.v7.widget.Toolbar;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.Menu;
 import android.view.MenuItem;
-
-import java.util.Observable;
-import java.util.Observer;
+import android.view.View;
 
 /**
  * The main activity. Fragments are loaded for the various stages in the UI.
  */
-public class MainActivity extends AppCompatActivity implements Observer {
+public class MainActivity extends AppCompatActivity
+        implements CastConnectionManager.ConnectionListener {
 
     private static final String TAG = "MainActivity";
 
     private CastConnectionFragment mCastConnectionFragment;
     private LobbyFragment mLobbyFragment;
     private DrawingFragment mDrawingFragment;
-    private int mPlayerState = GameManagerClient.PLAYER_STATE_UNKNOWN;
+    private int mPlayerState = GameStates.PLAYER_STATE_UNKNOWN;
+    // When the player last started playing, timed until the first frame of the drawing screen
+    private long mPlayingStartNanos = 0;
     private String mPlayerName;
 
+    // The fragment currently in the container, to skip transactions that would not change it
+    private Fragment mCurrentFragment;
+
+    // Updates the fragments at most once per frame
+    private FrameCoalescer mFragmentUpdater;
+
+    // Created after the first frame, null until then
     private CastConnectionManager mCastConnectionManager;
+    private MediaRouteActionProvider mMediaRouteActionProvider;
+    private DrawingScreenPreloader mDrawingScreenPreloader;
+
+    // Start of onCreate, from which the startup phases are timed
+    private long mCreateStartNanos;
+    // True between onResume and onPause
+    private boolean mResumed = false;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
+        mCreateStartNanos = SystemClock.elapsedRealtimeNanos();
         super.onCreate(savedInstanceState);
         setContentView(R.layout.main_activity);
 
@@ -55,19 +73,91 @@ public class MainActivity extends AppCompatActivity implements Observer {
         Toolbar toolbar = (Toolbar) findViewById(R.id.toolbar);
         setSupportActionBar(toolbar);
 
-        mCastConnectionManager = new CastConnectionManager(this,
-                getResources().getString(R.string.app_id));
+        // A long press on the toolbar opens the hidden metrics screen
+        toolbar.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                startActivity(new Intent(MainActivity.this, MetricsActivity.class));
+                return true;
+            }
+        });
+
+        mFragmentUpdater = new FrameCoalescer() {
+            @Override
+            protected void onFrame() {
+                updateFragments();
+            }
+        };
+        // Only the fragment shown first is created now, the others when they are needed
         mCastConnectionFragment = new CastConnectionFragment();
-        mDrawingFragment = new DrawingFragment();
-        mLobbyFragment = new LobbyFragment();
+        mDrawingScreenPreloader = new DrawingScreenPreloader(this);
 
         updateFragments();
+        AppMetrics.STARTUP_CREATE.record(SystemClock.elapsedRealtimeNanos() - mCreateStartNanos);
+
+        // Create the media router once the connection screen is drawn. A frame callback runs
+        // before the frame's traversal, so a message posted from it runs after the frame.
+        final Handler handler = new Handler();
+        Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onFirstFrame();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Creates the cast connection manager after the first frame, and starts discovery right away
+     * so that the Cast button becomes usable.
+     */
+    private void onFirstFrame() {
+        if (isFinishing() || isDestroyed()) {
+            return;
+        }
+        AppMetrics.STARTUP_FIRST_FRAME.record(
+                SystemClock.elapsedRealtimeNanos() - mCreateStartNanos);
+        GameTrace.beginSection("MainActivity.createCastConnectionManager");
+        try {
+            mCastConnectionManager = new CastConnectionManager(this,
+                    getResources().getString(R.string.app_id));
+            if (mMediaRouteActionProvider != null) {
+                mMediaRouteActionProvider.setRouteSelector(
+                        mCastConnectionManager.getMediaRouteSelector());
+            }
+            // onResume could not start discovery if it ran before the manager existed.
+            if (mResumed) {
+                mCastConnectionManager.startScan();
+                mCastConnectionManager.addConnectionListener(this);
+            }
+            if (mCurrentFragment != null && mCurrentFragment.getActivity() != null) {
+                ((GameFragment) mCurrentFragment).setCastConnectionManager(mCastConnectionManager);
+            }
+        } finally {
+            GameTrace.endSection();
+        }
+        AppMetrics.STARTUP_CAST_READY.record(
+                SystemClock.elapsedRealtimeNanos() - mCreateStartNanos);
+        Log.d(TAG, "Startup: " + AppMetrics.STARTUP_CREATE + ", " + AppMetrics.STARTUP_FIRST_FRAME
+                + ", " + AppMetrics.STARTUP_CAST_READY);
     }
 
+    /**
+     * Returns the cast connection manager, or null while the app is starting, before its first
+     * frame.
+     */
     public CastConnectionManager getCastConnectionManager() {
         return mCastConnectionManager;
     }
 
+    public DrawingScreenPreloader getDrawingScreenPreloader() {
+        return mDrawingScreenPreloader;
+    }
+
     /**
      * Called when the options menu is first created.
      */
@@ -82,73 +172,152 @@ public class MainActivity extends AppCompatActivity implements Observer {
             Log.w(TAG, "mediaRouteActionProvider is null!");
             return false;
         }
-        mediaRouteActionProvider.setRouteSelector(mCastConnectionManager.getMediaRouteSelector());
+        mMediaRouteActionProvider = mediaRouteActionProvider;
+        if (mCastConnectionManager != null) {
+            mediaRouteActionProvider.setRouteSelector(
+                    mCastConnectionManager.getMediaRouteSelector());
+        }
         return true;
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        mCastConnectionManager.startScan();
-        mCastConnectionManager.addObserver(this);
+        mResumed = true;
+        if (mCastConnectionManager != null) {
+            mCastConnectionManager.startScan();
+            mCastConnectionManager.addConnectionListener(this);
+        }
         updateFragments();
     }
 
     @Override
     protected void onPause() {
-        mCastConnectionManager.stopScan();
-        mCastConnectionManager.deleteObserver(this);
+        mResumed = false;
+        if (mCastConnectionManager != null) {
+            mCastConnectionManager.stopScan();
+            mCastConnectionManager.removeConnectionListener(this);
+        }
+        mFragmentUpdater.cancel();
         super.onPause();
     }
 
+    @Override
+    public void onRouteSelected(CastDevice device) {
+        // no-op
+    }
+
+    @Override
+    public void onApiClientConnected() {
+        // no-op
+    }
+
+    @Override
+    public void onApplicationLaunched(String sessionId) {
+        // no-op
+    }
+
     /**
-     * Called when the cast connection changes.
+     * Called when the cast connection is ready. Makes the player available in the game, unless
+     * the connection resumed a session where the player still has a slot.
      */
     @Override
-    public void update(Observable object, Object data) {
-        final GameManagerClient gameManagerClient = mCastConnectionManager.getGameManagerClient();
-        if (mCastConnectionManager.isConnectedToReceiver()) {
-            PendingResult<GameManagerClient.GameManagerResult> result =
-                    gameManagerClient.sendPlayerAvailableRequest(null);
-            result.setResultCallback(new ResultCallback<GameManagerClient.GameManagerResult>() {
-                @Override
-                public void onResult(final GameManagerClient.GameManagerResult gameManagerResult) {
-                    if (gameManagerResult.getStatus().isSuccess()) {
-                        Log.d(TAG, "Player ID: " + gameManagerResult.getPlayerId());
-                        mPlayerState = gameManagerClient.getCurrentState().getPlayer(
-                                gameManagerResult.getPlayerId()).getPlayerState();
-                    } else {
-                        mCastConnectionManager.disconnectFromReceiver(false);
-                        Utils.showErrorDialog(MainActivity.this,
-                                gameManagerResult.getStatus().getStatusMessage());
-                    }
-                    updateFragments();
-                }
-            });
+    public void onGameTransportReady(GameTransport transport) {
+        String playerId = transport.getLastUsedPlayerId();
+        int playerState = transport.getPlayerState(playerId);
+        if (playerId != null && GameStates.isActive(playerState)) {
+            Log.d(TAG, "Resumed as player ID: " + playerId);
+            onPlayerAvailable();
+            updatePlayerState(playerState);
+            mFragmentUpdater.schedule();
+            return;
         }
-        updateFragments();
+        transport.sendPlayerAvailableRequest(null, new GameTransport.RequestCallback() {
+            @Override
+            public void onRequestSucceeded(String playerId, int playerState) {
+                Log.d(TAG, "Player ID: " + playerId);
+                onPlayerAvailable();
+                updatePlayerState(playerState);
+                mFragmentUpdater.schedule();
+            }
+
+            @Override
+            public void onRequestFailed(String errorMessage) {
+                mCastConnectionManager.disconnectFromReceiver(false);
+                Utils.showErrorDialog(MainActivity.this, errorMessage);
+                mFragmentUpdater.schedule();
+            }
+        });
+        mFragmentUpdater.schedule();
+    }
+
+    /**
+     * Completes the timing of the connection, the player can now take part in the game.
+     */
+    private void onPlayerAvailable() {
+        ConnectionTimings timings = mCastConnectionManager.getConnectionTimings();
+        timings.endPhase(ConnectionTimings.PHASE_PLAYER_AVAILABLE);
+        Log.d(TAG, "Connection timings:\n" + timings.dump());
+    }
+
+    /**
+     * Called when the cast connection is torn down.
+     */
+    @Override
+    public void onDisconnected(int cause) {
+        Log.d(TAG, "onDisconnected: cause=" + cause);
+        mFragmentUpdater.schedule();
     }
 
     private void updateFragments() {
-        if (isChangingConfigurations() || isFinishing() || isDestroyed()) {
-            return;
-        }
+        GameTrace.beginSection("MainActivity.updateFragments");
+        try {
+            if (isChangingConfigurations() || isFinishing() || isDestroyed()) {
+                return;
+            }
 
-        Fragment fragment;
-        if (!mCastConnectionManager.isConnectedToReceiver()) {
-            mPlayerName = null;
-            fragment = mCastConnectionFragment;
-        } else {
-            if (mPlayerState == GameManagerClient.PLAYER_STATE_PLAYING) {
-                fragment = mDrawingFragment;
+            Fragment fragment;
+            if (mCastConnectionManager == null) {
+                fragment = mCastConnectionFragment;
+            } else if (mCastConnectionManager.isReconnecting()) {
+                // Keep the game on screen until the connection is back or given up on.
+                return;
+            } else if (!mCastConnectionManager.isConnectedToReceiver()) {
+                mPlayerName = null;
+                fragment = mCastConnectionFragment;
             } else {
-                fragment = mLobbyFragment;
+                if (mPlayerState == GameStates.PLAYER_STATE_PLAYING) {
+                    if (mDrawingFragment == null) {
+                        mDrawingFragment = new DrawingFragment();
+                    }
+                    fragment = mDrawingFragment;
+                } else {
+                    if (mLobbyFragment == null) {
+                        mLobbyFragment = new LobbyFragment();
+                    }
+                    fragment = mLobbyFragment;
+                }
             }
+            if (fragment == mCurrentFragment) {
+                AppMetrics.FRAGMENT_TRANSACTIONS_SKIPPED.incrementAndGet();
+                return;
+            }
+            mCurrentFragment = fragment;
+            if (fragment == mLobbyFragment) {
+                // Get the game ready while the player waits for it
+                mDrawingScreenPreloader.prepare();
+            } else if (fragment == mDrawingFragment) {
+                mDrawingFragment.timeFirstFrame(mPlayingStartNanos);
+            } else {
+                mDrawingScreenPreloader.cancel();
+            }
+            getFragmentManager().beginTransaction()
+                    .replace(R.id.fragment_container, fragment)
+                    .setTransition(FragmentTransaction.TRANSIT_FRAGMENT_OPEN)
+                    .commitAllowingStateLoss();
+        } finally {
+            GameTrace.endSection();
         }
-        getFragmentManager().beginTransaction()
-                .replace(R.id.fragment_container, fragment)
-                .setTransition(FragmentTransaction.TRANSIT_FRAGMENT_OPEN)
-                .commitAllowingStateLoss();
     }
 
     @Override
@@ -162,10 +331,20 @@ public class MainActivity extends AppCompatActivity implements Observer {
     }
 
     public void setPlayerState(int state) {
-        mPlayerState = state;
+        updatePlayerState(state);
         updateFragments();
     }
 
+    /**
+     * Sets the player state, and notes when the player starts playing.
+     */
+    private void updatePlayerState(int state) {
+        if (state == GameStates.PLAYER_STATE_PLAYING && mPlayerState != state) {
+            mPlayingStartNanos = SystemClock.elapsedRealtimeNanos();
+        }
+        mPlayerState = state;
+    }
+
     public String getPlayerName() {
         return mPlayerName;
     }
@@ -0,0 +1,125 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import org.json.JSONException;
+
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
+import android.view.View;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Hidden debug screen showing {@link AppMetrics}, the {@link StallWatchdog} stalls and the recent
+ * {@link AppEvents}. It is opened with a long press on the toolbar of {@link MainActivity}. The
+ * metrics can be saved as JSON to the external files of the app, to be collected from test devices
+ * with {@code adb pull}.
+ */
+public class MetricsActivity extends AppCompatActivity implements View.OnClickListener {
+
+    private static final String TAG = "MetricsActivity";
+    private static final String METRICS_FILE_NAME = "metrics.json";
+
+    private TextView mMetricsView;
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.metrics_activity);
+
+        mMetricsView = (TextView) findViewById(R.id.metrics);
+        findViewById(R.id.button_refresh).setOnClickListener(this);
+        findViewById(R.id.button_reset).setOnClickListener(this);
+        findViewById(R.id.button_save).setOnClickListener(this);
+        findViewById(R.id.button_frame_timing).setOnClickListener(this);
+        findViewById(R.id.button_trace).setOnClickListener(this);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        refresh();
+    }
+
+    @Override
+    public void onClick(View v) {
+        switch (v.getId()) {
+            case R.id.button_refresh:
+                refresh();
+                break;
+            case R.id.button_reset:
+                AppMetrics.REGISTRY.reset();
+                refresh();
+                break;
+            case R.id.button_save:
+                saveJson();
+                break;
+            case R.id.button_frame_timing:
+                FrameTimingRecorder.setEnabled(!FrameTimingRecorder.isEnabled());
+                refresh();
+                break;
+            case R.id.button_trace:
+                GameTrace.setEnabled(!GameTrace.isEnabled());
+                refresh();
+                break;
+        }
+    }
+
+    private void refresh() {
+        ((TextView) findViewById(R.id.button_frame_timing)).setText(
+                FrameTimingRecorder.isEnabled() ? R.string.button_frame_timing_off
+                        : R.string.button_frame_timing_on);
+        ((TextView) findViewById(R.id.button_trace)).setText(GameTrace.isEnabled()
+                ? R.string.button_trace_off : R.string.button_trace_on);
+        mMetricsView.setText(AppMetrics.REGISTRY + "\nMain thread stalls:\n"
+                + StallWatchdog.dump() + "\nRecent events:\n" + AppEvents.LOG.dump());
+    }
+
+    /**
+     * Writes the metrics as JSON to the external files of the app, and to the log.
+     */
+    private void saveJson() {
+        File directory = getExternalFilesDir(null);
+        FileOutputStream output = null;
+        try {
+            String json = AppMetrics.REGISTRY.toJson().toString();
+            Log.i(TAG, json);
+            if (directory == null) {
+                throw new IOException("External storage is not available");
+            }
+            File file = new File(directory, METRICS_FILE_NAME);
+            output = new FileOutputStream(file);
+            output.write(json.getBytes("UTF-8"));
+            Toast.makeText(this, getString(R.string.metrics_saved, file.getAbsolutePath()),
+                    Toast.LENGTH_LONG).show();
+        } catch (JSONException | IOException e) {
+            Log.e(TAG, "Unable to save the metrics", e);
+            Toast.makeText(this, R.string.metrics_not_saved, Toast.LENGTH_LONG).show();
+        } finally {
+            if (output != null) {
+                try {
+                    output.close();
+                } catch (IOException e) {
+                    Log.w(TAG, "Unable to close " + METRICS_FILE_NAME, e);
+                }
+            }
+        }
+    }
+}
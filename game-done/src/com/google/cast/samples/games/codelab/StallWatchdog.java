@@ -0,0 +1,168 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Printer;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Measures every message dispatched by the main looper while it is started, through
+ * {@link Looper#setMessageLogging}, and records the ones that take longer than a threshold as
+ * stalls. A stall is attributed to the last callback named with {@link #noteCallback} while the
+ * message ran, or else to the handler and runnable the looper reports. Stalls are counted in
+ * {@link AppMetrics}, per named callback or else under "stalls.other", logged to
+ * {@link AppEvents}, and the most recent ones are kept for {@link #dump}. Must be used on the main
+ * thread.
+ */
+public final class StallWatchdog {
+
+    // Two frames at 60Hz
+    public static final long DEFAULT_THRESHOLD_MS = 32;
+
+    private static final int MAX_STALLS = 64;
+
+    private static final long[] sStallTimesMillis = new long[MAX_STALLS];
+    private static final long[] sStallDurationsNanos = new long[MAX_STALLS];
+    private static final String[] sStallCallbacks = new String[MAX_STALLS];
+    private static int sStallCount = 0;
+
+    private static boolean sStarted = false;
+    private static long sThresholdNanos;
+    private static long sDispatchStartNanos;
+    private static String sDispatchTarget;
+    private static String sCallback;
+
+    private static final Printer sPrinter = new Printer() {
+        @Override
+        public void println(String line) {
+            // The looper prints ">>>>> Dispatching to <target> <what>" before each message and
+            // "<<<<< Finished to <target>" after it.
+            if (line.charAt(0) == '>') {
+                sDispatchStartNanos = SystemClock.elapsedRealtimeNanos();
+                sDispatchTarget = line;
+                sCallback = null;
+            } else if (sDispatchTarget != null) {
+                onDispatchFinished(SystemClock.elapsedRealtimeNanos() - sDispatchStartNanos);
+                sDispatchTarget = null;
+            }
+        }
+    };
+
+    private StallWatchdog() {
+    }
+
+    /**
+     * Starts measuring the messages of the main looper.
+     *
+     * @param thresholdMillis the duration over which a message is recorded as a stall.
+     */
+    public static void start(long thresholdMillis) {
+        sThresholdNanos = thresholdMillis * 1000000L;
+        sDispatchTarget = null;
+        sStarted = true;
+        Looper.getMainLooper().setMessageLogging(sPrinter);
+    }
+
+    public static void stop() {
+        Looper.getMainLooper().setMessageLogging(null);
+        sStarted = false;
+        sDispatchTarget = null;
+    }
+
+    public static boolean isStarted() {
+        return sStarted;
+    }
+
+    /**
+     * Names the callback running in the current message, to attribute a stall to it. This is
+     * only a field write, cheap enough to call from the hot paths whether the watchdog is
+     * started or not.
+     */
+    public static void noteCallback(String name) {
+        sCallback = name;
+    }
+
+    private static void onDispatchFinished(long durationNanos) {
+        AppMetrics.LOOPER_MESSAGES.incrementAndGet();
+        AppMetrics.LOOPER_MESSAGE.record(durationNanos);
+        if (durationNanos <= sThresholdNanos) {
+            return;
+        }
+        String callback = (sCallback != null) ? sCallback : getTarget(sDispatchTarget);
+        AppMetrics.LOOPER_STALLS.incrementAndGet();
+        // Named callbacks are a fixed set. Looper targets include anonymous classes, so they are
+        // counted together and only told apart in the dump.
+        if (sCallback != null) {
+            AppMetrics.REGISTRY.getCounter("stalls." + sCallback).incrementAndGet();
+        } else {
+            AppMetrics.OTHER_STALLS.incrementAndGet();
+        }
+        AppEvents.LOG.log(AppEvents.MAIN_THREAD_STALL, (int) (durationNanos / 1000));
+
+        int index = sStallCount % MAX_STALLS;
+        sStallTimesMillis[index] = System.currentTimeMillis();
+        sStallDurationsNanos[index] = durationNanos;
+        sStallCallbacks[index] = callback;
+        sStallCount++;
+    }
+
+    /**
+     * Returns the handler class and runnable class of a dispatch line, which looks like
+     * {@code ">>>>> Dispatching to Handler (<class>) {<hash>} <runnable>@<hash>: <what>"}.
+     */
+    private static String getTarget(String dispatchLine) {
+        int open = dispatchLine.indexOf('(');
+        int close = dispatchLine.indexOf(')', open);
+        if (open < 0 || close < 0) {
+            return dispatchLine;
+        }
+        String handler = dispatchLine.substring(open + 1, close);
+        int runnableStart = dispatchLine.indexOf("} ", close) + 2;
+        int runnableEnd = dispatchLine.indexOf('@', runnableStart);
+        if (runnableStart < 2 || runnableEnd < 0) {
+            // No runnable, the handler handles the message itself
+            return handler;
+        }
+        return handler + " " + dispatchLine.substring(runnableStart, runnableEnd);
+    }
+
+    /**
+     * Returns the number of stalls recorded so far, including those no longer kept.
+     */
+    public static int getStallCount() {
+        return sStallCount;
+    }
+
+    /**
+     * Returns the most recent stalls, oldest first, one per line.
+     */
+    public static String dump() {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("HH:mm:ss.SSS", Locale.US);
+        StringBuilder builder = new StringBuilder();
+        for (int i = Math.max(0, sStallCount - MAX_STALLS); i < sStallCount; i++) {
+            int index = i % MAX_STALLS;
+            builder.append(dateFormat.format(new Date(sStallTimesMillis[index])))
+                    .append(String.format(Locale.US, " %8.2fms ",
+                            sStallDurationsNanos[index] / 1e6))
+                    .append(sStallCallbacks[index])
+                    .append('\n');
+        }
+        return builder.toString();
+    }
+}
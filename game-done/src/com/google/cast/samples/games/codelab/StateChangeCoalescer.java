@@ -0,0 +1,61 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import com.google.android.gms.cast.games.GameManagerClient;
+import com.google.android.gms.cast.games.GameManagerState;
+
+import org.json.JSONObject;
+
+/**
+ * A GameManagerClient listener that folds bursts of state changes into one
+ * {@link GameManagerClient.Listener#onStateChanged} call per frame, from the oldest state of the
+ * burst to the newest. Pending state changes are delivered before any game message, so the
+ * listener always sees them in the order they happened.
+ */
+public class StateChangeCoalescer extends FrameCoalescer implements GameManagerClient.Listener {
+
+    private final GameManagerClient.Listener mListener;
+
+    private GameManagerState mPendingOldState;
+    private GameManagerState mPendingNewState;
+
+    public StateChangeCoalescer(GameManagerClient.Listener listener) {
+        mListener = listener;
+    }
+
+    @Override
+    public void onStateChanged(GameManagerState newState, GameManagerState oldState) {
+        if (!isScheduled()) {
+            mPendingOldState = oldState;
+        }
+        mPendingNewState = newState;
+        schedule();
+    }
+
+    @Override
+    public void onGameMessageReceived(String playerId, JSONObject message) {
+        flush();
+        mListener.onGameMessageReceived(playerId, message);
+    }
+
+    @Override
+    protected void onFrame() {
+        GameManagerState newState = mPendingNewState;
+        GameManagerState oldState = mPendingOldState;
+        mPendingNewState = null;
+        mPendingOldState = null;
+        mListener.onStateChanged(newState, oldState);
+    }
+}
@@ -22,16 +22,26 @@ import android.content.DialogInterface;
  */
 public class Utils {
 
+    // The error dialog being shown, reused for the errors that happen while it is up
+    private static AlertDialog sErrorDialog;
+
     /**
-     * Shows an error dialog.
+     * Shows an error dialog, and dumps the {@link FlightRecorder}.
      *
      * @param errorMessage The message to show in the dialog.
      */
     public static void showErrorDialog(final Activity activity, final String errorMessage) {
+        AppEvents.LOG.log(AppEvents.ERROR_DIALOG);
+        FlightRecorder.dump(activity, "error");
         if (!activity.isDestroyed()) {
             activity.runOnUiThread(new Runnable() {
                 @Override
                 public void run() {
+                    if (sErrorDialog != null && sErrorDialog.isShowing()
+                            && sErrorDialog.getOwnerActivity() == activity) {
+                        sErrorDialog.setMessage(errorMessage);
+                        return;
+                    }
                     // Show a error dialog along with error messages.
                     AlertDialog alertDialog = new AlertDialog.Builder(activity).create();
                     alertDialog
@@ -45,6 +55,15 @@ public class Utils {
                                     dialog.dismiss();
                                 }
                             });
+                    alertDialog.setOnDismissListener(new DialogInterface.OnDismissListener() {
+                        @Override
+                        public void onDismiss(DialogInterface dialog) {
+                            if (sErrorDialog == dialog) {
+                                sErrorDialog = null;
+                            }
+                        }
+                    });
+                    sErrorDialog = alertDialog;
                     alertDialog.show();
                 }
             });
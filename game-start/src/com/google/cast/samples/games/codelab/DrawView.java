@@ -32,14 +32,12 @@ import android.view.View.OnTouchListener;
  */
 public class DrawView extends View implements OnTouchListener {
 
-    protected static final int GRID_SIZE = 20;
+    protected static final int GRID_SIZE = GameMessages.GRID_SIZE;
     private static final String TAG = "DrawView";
 
-    private short[][] mGrid;
+    private final GridModel mGrid = new GridModel(GRID_SIZE);
     private double mHeightInPixels;
     private short mSelectedColor = 1;
-    private int mLastGridX = -1;
-    private int mLastGridY = -1;
     private DrawViewListener mListener;
 
     // These are the four colors provided for painting.
@@ -64,8 +62,6 @@ public class DrawView extends View implements OnTouchListener {
     public DrawView(Context context, AttributeSet attrs) {
         super(context, attrs);
 
-        mGrid = new short[GRID_SIZE][GRID_SIZE];
-
         setOnTouchListener(this);
 
         setAnimating(true);
@@ -103,7 +99,7 @@ public class DrawView extends View implements OnTouchListener {
         // Now, draw with 0,0 in upper left and 9,9 in lower right
         for (int x = 0; x < GRID_SIZE; x++) {
             for (int y = 0; y < GRID_SIZE; y++) {
-                mPaint.setColor(COLOR_MAP[mGrid[x][y]]);
+                mPaint.setColor(COLOR_MAP[mGrid.getColor(x, y)]);
 
                 mRect.top = sp(((float) y) / GRID_SIZE);
                 mRect.left = sp(((float) x) / GRID_SIZE);
@@ -159,20 +155,10 @@ public class DrawView extends View implements OnTouchListener {
 
                 Log.d(TAG, "You touched " + gridX + " " + gridY + "/" + me.getY());
 
-                if (gridX < GRID_SIZE && gridY < GRID_SIZE && gridX >= 0 && gridY >= 0) {
-
-                    short oldColor = mGrid[gridX][gridY];
-                    mGrid[gridX][gridY] = mSelectedColor;
-
+                if (mGrid.contains(gridX, gridY)) {
                     // Don't double-draw or send messages where the color does not change
-                    boolean notSameSpot = (mLastGridX != gridX) || (mLastGridY != gridY);
-                    boolean notSameColor = oldColor != mSelectedColor;
-                    if (notSameSpot && notSameColor) {
-                        if (mListener != null) {
-                            mListener.onDrawEvent(gridX, gridY, mSelectedColor);
-                        }
-                        mLastGridX = gridX;
-                        mLastGridY = gridY;
+                    if (mGrid.paint(gridX, gridY, mSelectedColor) && mListener != null) {
+                        mListener.onDrawEvent(gridX, gridY, mSelectedColor);
                     }
                 }
 
@@ -191,21 +177,14 @@ public class DrawView extends View implements OnTouchListener {
      */
     public void setMacroPixel(int gridX, int gridY, short colorIndex) {
         // paint that pixel with the currently selected color
-        mGrid[gridX][gridY] = colorIndex;
+        mGrid.setMacroPixel(gridX, gridY, colorIndex);
     }
 
     /**
      * Clear paint from all pixels.
      */
     public void clear() {
-        mLastGridX = -1;
-        mLastGridY = -1;
-
-        for (int x = 0; x < GRID_SIZE; x++) {
-            for (int y = 0; y < GRID_SIZE; y++) {
-                mGrid[x][y] = 0;
-            }
-        }
+        mGrid.clear();
     }
 
 }
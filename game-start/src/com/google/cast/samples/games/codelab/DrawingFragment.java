@@ -37,9 +37,7 @@ import android.widget.ListView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
@@ -82,6 +80,7 @@ public class DrawingFragment extends GameFragment
 
     // All possible words for game
     private String[] mAllWords;
+    private WordSampler mWordSampler;
 
     // ProgressBar, TextView, and Handler used to show the time remaining to make a guess.
     private ProgressBar mGuessProgress;
@@ -129,6 +128,7 @@ public class DrawingFragment extends GameFragment
 
         // Create array of all words
         mAllWords = getResources().getString(R.string.words).split("\\s*,\\s*");
+        mWordSampler = new WordSampler(mAllWords, new Random());
         mTurnWords = Arrays.asList(mAllWords);
 
         mAristUIView = view.findViewById(R.id.artistUI);
@@ -170,7 +170,7 @@ public class DrawingFragment extends GameFragment
         updateTurnIndices();
         if (isMyTurn()) {
             // Pick words randomly
-            mTurnWords = getRandomWordSubset(10);
+            mTurnWords = mWordSampler.sample(MAX_WORDS);
             mWordIndex = (new Random()).nextInt(mTurnWords.size());
 
             // Send turn message to others
@@ -347,7 +347,7 @@ public class DrawingFragment extends GameFragment
         mMatchTurnNumber = mMatchTurnNumber + 1;
 
         // Choose random word subset and correct word
-        mTurnWords = getRandomWordSubset(MAX_WORDS);
+        mTurnWords = mWordSampler.sample(MAX_WORDS);
         mWordIndex = (new Random()).nextInt(mTurnWords.size());
 
         // Send new turn data to others
@@ -357,22 +357,6 @@ public class DrawingFragment extends GameFragment
         updateViewVisibility();
     }
 
-    /**
-     * Pick a random set of words from the master word list.
-     *
-     * @param numWords the number of words to choose.
-     * @return a list of randomly chosen words.
-     */
-    private List<String> getRandomWordSubset(int numWords) {
-        List<String> result = new ArrayList<>();
-
-        Collections.addAll(result, mAllWords);
-        Collections.shuffle(result);
-        result = result.subList(0, numWords);
-
-        return result;
-    }
-
     /**
      * Record my guess and inform all other players.
      *
@@ -0,0 +1,179 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Plays the drawing game with simulated senders against an in-process {@link StandInReceiver},
+ * and reports the message throughput and the latency from a cell being drawn on a sender to the
+ * receiver applying it.
+ *
+ * <p>Usage: LoadGenerator [--players=8] [--cells-per-second=20] [--think-ms=3000]
+ * [--turn-seconds=10] [--duration-seconds=30]
+ */
+public class LoadGenerator {
+
+    private static final List<String> WORDS = Arrays.asList("apple", "banana", "boat", "car",
+            "cat", "cloud", "dog", "flower", "guitar", "hat", "house", "key", "moon", "robot",
+            "shoe", "star", "sun", "tree", "umbrella", "window");
+
+    private final int mPlayerCount;
+    private final double mCellsPerSecond;
+    private final long mThinkMillis;
+    private final long mTurnMillis;
+    private final long mDurationMillis;
+
+    private final Map<String, SimulatedPlayer> mPlayersById = new ConcurrentHashMap<>();
+
+    // Written on the receiver thread only, read once it has stopped
+    private final LatencyHistogram mApplyLatency = new LatencyHistogram("gridApply");
+    private long mGuessCount;
+    private long mTurnCount;
+
+    public LoadGenerator(int playerCount, double cellsPerSecond, long thinkMillis,
+            long turnMillis, long durationMillis) {
+        mPlayerCount = playerCount;
+        mCellsPerSecond = cellsPerSecond;
+        mThinkMillis = thinkMillis;
+        mTurnMillis = turnMillis;
+        mDurationMillis = durationMillis;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int players = 8;
+        double cellsPerSecond = 20;
+        long thinkMillis = 3000;
+        long turnSeconds = 10;
+        long durationSeconds = 30;
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            if (option.length != 2) {
+                throw new IllegalArgumentException("Expected --name=value: " + arg);
+            }
+            switch (option[0]) {
+                case "--players":
+                    players = Integer.parseInt(option[1]);
+                    break;
+                case "--cells-per-second":
+                    cellsPerSecond = Double.parseDouble(option[1]);
+                    break;
+                case "--think-ms":
+                    thinkMillis = Long.parseLong(option[1]);
+                    break;
+                case "--turn-seconds":
+                    turnSeconds = Long.parseLong(option[1]);
+                    break;
+                case "--duration-seconds":
+                    durationSeconds = Long.parseLong(option[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + option[0]);
+            }
+        }
+        new LoadGenerator(players, cellsPerSecond, thinkMillis, turnSeconds * 1000,
+                durationSeconds * 1000).run();
+    }
+
+    public void run() throws IOException, InterruptedException {
+        StandInReceiver receiver = new StandInReceiver(0);
+        receiver.setApplyListener(new ReceiverGame.ApplyListener() {
+            @Override
+            public void onGameMessageApplied(String playerId, JSONObject message) {
+                onMessageApplied(playerId, message);
+            }
+        });
+        Thread receiverThread = new Thread(receiver, "StandInReceiver");
+        receiverThread.start();
+
+        List<SimulatedPlayer> players = new ArrayList<>();
+        List<String> playerIds = new ArrayList<>();
+        for (int i = 0; i < mPlayerCount; i++) {
+            SimulatedPlayer player = new SimulatedPlayer("bot" + i, "127.0.0.1",
+                    receiver.getPort(), mCellsPerSecond, mThinkMillis, mTurnMillis, WORDS);
+            String playerId = player.join();
+            mPlayersById.put(playerId, player);
+            players.add(player);
+            playerIds.add(playerId);
+        }
+
+        List<Thread> threads = new ArrayList<>();
+        for (SimulatedPlayer player : players) {
+            player.setPlayerIds(playerIds);
+            Thread thread = new Thread(player, "SimulatedPlayer-" + player.getPlayerId());
+            threads.add(thread);
+            thread.start();
+        }
+
+        long framesIn = receiver.getFramesIn();
+        long framesOut = receiver.getFramesOut();
+        long bytesIn = receiver.getBytesIn();
+        long bytesOut = receiver.getBytesOut();
+        long startNanos = System.nanoTime();
+        players.get(0).startGame();
+        Thread.sleep(mDurationMillis);
+
+        for (SimulatedPlayer player : players) {
+            player.stop();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        framesIn = receiver.getFramesIn() - framesIn;
+        framesOut = receiver.getFramesOut() - framesOut;
+        bytesIn = receiver.getBytesIn() - bytesIn;
+        bytesOut = receiver.getBytesOut() - bytesOut;
+        for (SimulatedPlayer player : players) {
+            player.dispose();
+        }
+        receiver.close();
+        receiverThread.join();
+
+        System.out.println(String.format(Locale.US, "players=%d duration=%.1fs turns=%d guesses=%d",
+                mPlayerCount, seconds, mTurnCount, mGuessCount));
+        System.out.println(String.format(Locale.US,
+                "senders->receiver: %d msgs (%.1f msgs/s), %d bytes (%.1f bytes/s)",
+                framesIn, framesIn / seconds, bytesIn, bytesIn / seconds));
+        System.out.println(String.format(Locale.US,
+                "receiver->senders: %d msgs (%.1f msgs/s), %d bytes (%.1f bytes/s)",
+                framesOut, framesOut / seconds, bytesOut, bytesOut / seconds));
+        System.out.println(mApplyLatency);
+    }
+
+    /**
+     * Runs on the receiver thread.
+     */
+    private void onMessageApplied(String playerId, JSONObject message) {
+        if (message.has(GameMessages.MESSAGE_GRID)) {
+            SimulatedPlayer player = mPlayersById.get(playerId);
+            Long sendTimeNanos = (player == null) ? null : player.pollGridSendTime();
+            if (sendTimeNanos != null) {
+                mApplyLatency.record(System.nanoTime() - sendTimeNanos);
+            }
+        } else if (message.has(GameMessages.MESSAGE_GUESS)) {
+            mGuessCount++;
+        } else if (message.has(GameMessages.MESSAGE_WORDS)) {
+            mTurnCount++;
+        }
+    }
+}
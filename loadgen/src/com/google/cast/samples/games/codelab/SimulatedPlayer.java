@@ -0,0 +1,318 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One sender played by a thread: joins the lobby, then draws when it is the artist and guesses
+ * otherwise, sending the same messages as DrawingFragment.
+ */
+public class SimulatedPlayer implements Runnable, GameTransport.Listener {
+
+    private static final int MAX_WORDS = 10;
+    private static final long IDLE_POLL_MS = 100;
+
+    // Callbacks only queue work for the player thread, so they run on the transport thread.
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final String mName;
+    private final SocketGameTransport mTransport;
+    private final long mCellIntervalNanos;
+    private final long mThinkMillis;
+    private final long mTurnMillis;
+    private final Random mRandom = new Random();
+    // Picks the turn words like DrawingFragment does, used by the player thread only
+    private final WordSampler mWordSampler;
+
+    // Turn messages received, handled by the player thread
+    private final BlockingQueue<JSONObject> mTurnMessages = new LinkedBlockingQueue<>();
+
+    // Send times of the grid messages not applied by the receiver yet, oldest first
+    private final ConcurrentLinkedQueue<Long> mGridSendTimes = new ConcurrentLinkedQueue<>();
+
+    // Set once every player has joined
+    private volatile List<String> mTurnOrder;
+    private volatile boolean mRunning = true;
+    private String mPlayerId;
+
+    // Current turn, owned by the player thread
+    private int mTurn = -1;
+    private boolean mArtist;
+    private long mTurnEndMillis;
+    private long mGuessAtMillis;
+    private boolean mGuessed;
+    private int mGridX;
+    private int mGridY;
+    private long mNextCellNanos;
+
+    public SimulatedPlayer(String name, String host, int port, double cellsPerSecond,
+            long thinkMillis, long turnMillis, List<String> words) throws IOException {
+        mName = name;
+        mCellIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / cellsPerSecond);
+        mThinkMillis = thinkMillis;
+        mTurnMillis = turnMillis;
+        mWordSampler = new WordSampler(words.toArray(new String[words.size()]), mRandom);
+        mTransport = SocketGameTransport.connect(host, port, DIRECT_EXECUTOR);
+        mTransport.setListener(this);
+    }
+
+    /**
+     * Makes the player available then ready, and waits for the receiver to accept it.
+     *
+     * @return the ID of the player.
+     */
+    public String join() throws InterruptedException, IOException {
+        mPlayerId = request(true, null);
+        try {
+            request(false, new JSONObject().put(ReceiverGame.EXTRA_NAME, mName));
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+        return mPlayerId;
+    }
+
+    /**
+     * Sets the IDs of all the players. Turn order is determined by sorting them, like
+     * PlayerRoster does.
+     */
+    public void setPlayerIds(List<String> playerIds) {
+        List<String> turnOrder = new ArrayList<>(playerIds);
+        Collections.sort(turnOrder);
+        mTurnOrder = turnOrder;
+    }
+
+    /**
+     * Asks the receiver to start the game for all the ready players.
+     */
+    public void startGame() {
+        mTransport.sendPlayerPlayingRequest(null, null);
+    }
+
+    /**
+     * Removes the send time of the oldest grid message of this player, when the receiver applies
+     * it. Grid messages of one sender are applied in the order they were sent.
+     *
+     * @return the send time in nanoseconds, or null if there is none.
+     */
+    public Long pollGridSendTime() {
+        return mGridSendTimes.poll();
+    }
+
+    public String getPlayerId() {
+        return mPlayerId;
+    }
+
+    public void stop() {
+        mRunning = false;
+    }
+
+    public void dispose() {
+        mTransport.dispose();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (mRunning) {
+                JSONObject turnMessage = mTurnMessages.poll();
+                if (turnMessage != null) {
+                    beginTurn(turnMessage);
+                } else if (mTurn < 0) {
+                    waitForGameStart();
+                } else if (mArtist) {
+                    draw();
+                } else if (!mGuessed && System.currentTimeMillis() >= mGuessAtMillis) {
+                    send(GameMessages.newGuessMessage(mRandom.nextInt(MAX_WORDS)));
+                    mGuessed = true;
+                } else {
+                    long waitMillis = mGuessed ? IDLE_POLL_MS : Math.min(IDLE_POLL_MS,
+                            mGuessAtMillis - System.currentTimeMillis());
+                    turnMessage = mTurnMessages.poll(Math.max(1, waitMillis),
+                            TimeUnit.MILLISECONDS);
+                    if (turnMessage != null) {
+                        beginTurn(turnMessage);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void onGameMessageReceived(String playerId, JSONObject message) {
+        if (message.has(GameMessages.MESSAGE_WORDS)) {
+            mTurnMessages.offer(message);
+        }
+    }
+
+    @Override
+    public void onPlayerJoined(String playerId) {
+    }
+
+    @Override
+    public void onPlayerLeft(String playerId) {
+    }
+
+    @Override
+    public void onPlayerStateChanged(String playerId, int newPlayerState, int oldPlayerState) {
+    }
+
+    @Override
+    public void onLobbyStateChanged(int newLobbyState, int oldLobbyState) {
+    }
+
+    @Override
+    public void onGameplayStateChanged(int newGameplayState, int oldGameplayState) {
+    }
+
+    /**
+     * The artist of the first turn sends it once it is playing, like DrawingFragment#startMatch.
+     */
+    private void waitForGameStart() throws InterruptedException, JSONException {
+        if (mTurnOrder != null
+                && mTransport.getPlayerState(mPlayerId) == GameStates.PLAYER_STATE_PLAYING
+                && isArtist(0)) {
+            sendTurn(0);
+        }
+        JSONObject turnMessage = mTurnMessages.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+        if (turnMessage != null) {
+            beginTurn(turnMessage);
+        }
+    }
+
+    private void beginTurn(JSONObject turnMessage) throws JSONException {
+        mTurn = turnMessage.getInt(GameMessages.MESSAGE_TURN);
+        mArtist = isArtist(mTurn);
+        mGuessed = false;
+        long now = System.currentTimeMillis();
+        if (mArtist) {
+            send(GameMessages.newClearMessage());
+            send(GameMessages.newArtistMessage(mPlayerId));
+            mTurnEndMillis = now + mTurnMillis;
+            mGridX = mRandom.nextInt(GameMessages.GRID_SIZE);
+            mGridY = mRandom.nextInt(GameMessages.GRID_SIZE);
+            mNextCellNanos = System.nanoTime();
+        } else {
+            // Think for half to one and a half times the think time.
+            mGuessAtMillis = now + mThinkMillis / 2 + (long) (mRandom.nextDouble() * mThinkMillis);
+        }
+    }
+
+    /**
+     * Draws one cell at the configured rate, moving like a finger on the grid, and hands the turn
+     * over when it is over.
+     */
+    private void draw() throws JSONException {
+        if (System.currentTimeMillis() >= mTurnEndMillis) {
+            mArtist = false;
+            mGuessed = true;
+            sendTurn(mTurn + 1);
+            return;
+        }
+        long delay = mNextCellNanos - System.nanoTime();
+        if (delay > 0) {
+            LockSupport.parkNanos(delay);
+        }
+        mNextCellNanos += mCellIntervalNanos;
+
+        int gridX = clamp(mGridX + mRandom.nextInt(3) - 1);
+        int gridY = clamp(mGridY + mRandom.nextInt(3) - 1);
+        if (gridX == mGridX && gridY == mGridY) {
+            // DrawView only reports cell changes.
+            return;
+        }
+        mGridX = gridX;
+        mGridY = gridY;
+        JSONObject message = GameMessages.newGridMessage(gridX, gridY);
+        mGridSendTimes.add(System.nanoTime());
+        send(message);
+    }
+
+    private void sendTurn(int turn) throws JSONException {
+        List<String> words = mWordSampler.sample(MAX_WORDS);
+        send(GameMessages.newTurnMessage(turn, words, mRandom.nextInt(words.size())));
+        // Wait for the receiver to send the turn back before starting it.
+        mTurn = Math.max(mTurn, turn);
+        mArtist = false;
+        mGuessed = true;
+    }
+
+    private boolean isArtist(int turn) {
+        List<String> turnOrder = mTurnOrder;
+        return turnOrder.get(turn % turnOrder.size()).equals(mPlayerId);
+    }
+
+    private void send(JSONObject message) {
+        mTransport.sendGameMessage(message);
+    }
+
+    private static int clamp(int cell) {
+        return Math.max(0, Math.min(GameMessages.GRID_SIZE - 1, cell));
+    }
+
+    /**
+     * Sends an available or ready request and waits for its result.
+     */
+    private String request(boolean available, JSONObject extraMessageData)
+            throws InterruptedException, IOException {
+        final CountDownLatch done = new CountDownLatch(1);
+        final String[] result = new String[2];
+        GameTransport.RequestCallback callback = new GameTransport.RequestCallback() {
+            @Override
+            public void onRequestSucceeded(String playerId, int playerState) {
+                result[0] = playerId;
+                done.countDown();
+            }
+
+            @Override
+            public void onRequestFailed(String errorMessage) {
+                result[1] = errorMessage;
+                done.countDown();
+            }
+        };
+        if (available) {
+            mTransport.sendPlayerAvailableRequest(extraMessageData, callback);
+        } else {
+            mTransport.sendPlayerReadyRequest(extraMessageData, callback);
+        }
+        done.await();
+        if (result[1] != null) {
+            throw new IOException(mName + ": " + result[1]);
+        }
+        return result[0];
+    }
+}
@@ -0,0 +1,396 @@
+// Copyright 2015 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.cast.samples.games.codelab;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A stand-in for the Cast receiver: runs the game of receiver/game.js with {@link ReceiverGame}
+ * and serves any number of {@link SocketGameTransport} senders over TCP, so that the game can be
+ * tested with many senders and no Cast device.
+ *
+ * <p>Everything runs on a single thread with a NIO selector: the game is never accessed
+ * concurrently, and a slow sender only grows its own write queue.
+ */
+public class StandInReceiver implements Runnable {
+
+    private static final Logger LOG = Logger.getLogger("StandInReceiver");
+
+    public static final int DEFAULT_PORT = 9009;
+
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+
+    private final Selector mSelector;
+    private final ServerSocketChannel mServerChannel;
+    private final ReceiverGame mGame;
+    private final List<Connection> mConnections = new ArrayList<>();
+    private final Map<String, Connection> mConnectionsByPlayerId = new HashMap<>();
+    private volatile boolean mRunning = true;
+
+    // Traffic counters, written by the selector thread only
+    private final AtomicLong mFramesIn = new AtomicLong();
+    private final AtomicLong mFramesOut = new AtomicLong();
+    private final AtomicLong mBytesIn = new AtomicLong();
+    private final AtomicLong mBytesOut = new AtomicLong();
+
+    /**
+     * Binds the server socket. Call {@link #run} to start serving.
+     *
+     * @param port the port to listen to on localhost, or 0 for any free port.
+     */
+    public StandInReceiver(int port) throws IOException {
+        mSelector = Selector.open();
+        mServerChannel = ServerSocketChannel.open();
+        mServerChannel.configureBlocking(false);
+        mServerChannel.socket().bind(new InetSocketAddress("127.0.0.1", port));
+        mServerChannel.register(mSelector, SelectionKey.OP_ACCEPT);
+        mGame = new ReceiverGame(new GameOutput());
+        mGame.start();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        StandInReceiver receiver = new StandInReceiver(port);
+        System.out.println("Stand-in receiver listening on port " + receiver.getPort());
+        receiver.run();
+    }
+
+    public int getPort() {
+        return mServerChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Sets a listener notified on the selector thread after every game message is applied. Must
+     * be called before {@link #run}.
+     */
+    public void setApplyListener(ReceiverGame.ApplyListener applyListener) {
+        mGame.setApplyListener(applyListener);
+    }
+
+    public long getFramesIn() {
+        return mFramesIn.get();
+    }
+
+    public long getFramesOut() {
+        return mFramesOut.get();
+    }
+
+    public long getBytesIn() {
+        return mBytesIn.get();
+    }
+
+    public long getBytesOut() {
+        return mBytesOut.get();
+    }
+
+    /**
+     * Runs the selector loop until {@link #close} is called.
+     */
+    @Override
+    public void run() {
+        try {
+            while (mRunning) {
+                mSelector.select();
+                Iterator<SelectionKey> keys = mSelector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                connection.read();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.flush();
+                            }
+                        } catch (IOException | JSONException e) {
+                            LOG.log(Level.FINE, "Closing connection", e);
+                            disconnect(connection);
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (mRunning) {
+                LOG.log(Level.SEVERE, "Selector loop failed", e);
+            }
+        } finally {
+            for (Connection connection : new ArrayList<>(mConnections)) {
+                connection.close();
+            }
+            try {
+                mServerChannel.close();
+                mSelector.close();
+            } catch (IOException e) {
+                // Nothing left to do.
+            }
+        }
+    }
+
+    /**
+     * Stops the selector loop and closes all the connections. May be called from any thread.
+     */
+    public void close() {
+        mRunning = false;
+        mSelector.wakeup();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = mServerChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection connection = new Connection(channel);
+        connection.mKey = channel.register(mSelector, SelectionKey.OP_READ, connection);
+        mConnections.add(connection);
+
+        // The sender starts from the current state, like a GameManagerClient does.
+        JSONObject snapshot = WireProtocol.newFrame(WireProtocol.TYPE_SNAPSHOT);
+        JSONObject players = new JSONObject();
+        try {
+            for (String playerId : mGame.getPlayerIds()) {
+                players.put(playerId, mGame.getPlayerState(playerId));
+            }
+            snapshot.put(WireProtocol.KEY_PLAYERS, players);
+            snapshot.put(WireProtocol.KEY_LOBBY_STATE, mGame.getLobbyState());
+            snapshot.put(WireProtocol.KEY_GAMEPLAY_STATE, mGame.getGameplayState());
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+        connection.send(WireProtocol.encode(snapshot));
+    }
+
+    private void disconnect(Connection connection) {
+        connection.close();
+        mConnections.remove(connection);
+        if (connection.mPlayerId != null) {
+            mConnectionsByPlayerId.remove(connection.mPlayerId);
+            mGame.requestPlayerState(connection.mPlayerId, GameStates.PLAYER_STATE_QUIT, null);
+        }
+    }
+
+    private void onFrame(Connection connection, JSONObject frame) throws JSONException {
+        String type = frame.getString(WireProtocol.KEY_TYPE);
+        if (WireProtocol.TYPE_REQUEST.equals(type)) {
+            if (connection.mPlayerId == null) {
+                connection.mPlayerId = mGame.newPlayerId();
+                mConnectionsByPlayerId.put(connection.mPlayerId, connection);
+            }
+            String error = mGame.requestPlayerState(connection.mPlayerId,
+                    frame.getInt(WireProtocol.KEY_STATE),
+                    frame.optJSONObject(WireProtocol.KEY_EXTRA));
+            JSONObject result = WireProtocol.newFrame(WireProtocol.TYPE_RESULT);
+            result.put(WireProtocol.KEY_REQUEST_ID, frame.getInt(WireProtocol.KEY_REQUEST_ID));
+            result.put(WireProtocol.KEY_PLAYER_ID, connection.mPlayerId);
+            result.put(WireProtocol.KEY_STATE, mGame.getPlayerState(connection.mPlayerId));
+            result.putOpt(WireProtocol.KEY_ERROR, error);
+            send(connection, result);
+        } else if (WireProtocol.TYPE_GAME_MESSAGE.equals(type)) {
+            if (connection.mPlayerId != null) {
+                mGame.onGameMessage(connection.mPlayerId,
+                        frame.getJSONObject(WireProtocol.KEY_MESSAGE));
+            }
+        } else {
+            LOG.warning("Unexpected frame type: " + type);
+        }
+    }
+
+    private void send(Connection connection, JSONObject frame) {
+        try {
+            connection.send(WireProtocol.encode(frame));
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Dropping frame", e);
+        }
+    }
+
+    private void broadcast(JSONObject frame) {
+        ByteBuffer buffer;
+        try {
+            buffer = WireProtocol.encode(frame);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Dropping frame", e);
+            return;
+        }
+        for (Connection connection : mConnections) {
+            connection.send(buffer.duplicate());
+        }
+    }
+
+    /**
+     * Turns what the game sends into frames. Runs on the selector thread.
+     */
+    private class GameOutput implements ReceiverGame.Output {
+
+        @Override
+        public void onPlayerStateChanged(String playerId, int newPlayerState,
+                int oldPlayerState) {
+            JSONObject frame = WireProtocol.newFrame(WireProtocol.TYPE_PLAYER_STATE);
+            try {
+                frame.put(WireProtocol.KEY_PLAYER_ID, playerId);
+                frame.put(WireProtocol.KEY_STATE, newPlayerState);
+                frame.put(WireProtocol.KEY_OLD_STATE, oldPlayerState);
+            } catch (JSONException e) {
+                throw new IllegalStateException(e);
+            }
+            broadcast(frame);
+        }
+
+        @Override
+        public void onLobbyStateChanged(int newLobbyState, int oldLobbyState) {
+            broadcast(newStateFrame(WireProtocol.TYPE_LOBBY_STATE, newLobbyState, oldLobbyState));
+        }
+
+        @Override
+        public void onGameplayStateChanged(int newGameplayState, int oldGameplayState) {
+            broadcast(newStateFrame(WireProtocol.TYPE_GAMEPLAY_STATE, newGameplayState,
+                    oldGameplayState));
+        }
+
+        @Override
+        public void sendGameMessage(String toPlayerId, String fromPlayerId, JSONObject message) {
+            Connection connection = mConnectionsByPlayerId.get(toPlayerId);
+            if (connection == null) {
+                return;
+            }
+            JSONObject frame = WireProtocol.newFrame(WireProtocol.TYPE_GAME_MESSAGE);
+            try {
+                frame.put(WireProtocol.KEY_PLAYER_ID, fromPlayerId);
+                frame.put(WireProtocol.KEY_MESSAGE, message);
+            } catch (JSONException e) {
+                throw new IllegalStateException(e);
+            }
+            send(connection, frame);
+        }
+
+        private JSONObject newStateFrame(String type, int newState, int oldState) {
+            JSONObject frame = WireProtocol.newFrame(type);
+            try {
+                frame.put(WireProtocol.KEY_STATE, newState);
+                frame.put(WireProtocol.KEY_OLD_STATE, oldState);
+            } catch (JSONException e) {
+                throw new IllegalStateException(e);
+            }
+            return frame;
+        }
+    }
+
+    /**
+     * One sender: its channel, the bytes read but not decoded yet, and the frames not written
+     * yet.
+     */
+    private class Connection {
+
+        private final SocketChannel mChannel;
+        private SelectionKey mKey;
+        private ByteBuffer mReadBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private final ArrayDeque<ByteBuffer> mWriteQueue = new ArrayDeque<>();
+        private String mPlayerId;
+
+        Connection(SocketChannel channel) {
+            mChannel = channel;
+        }
+
+        void read() throws IOException, JSONException {
+            int read = mChannel.read(mReadBuffer);
+            if (read < 0) {
+                throw new IOException("Connection closed by the sender");
+            }
+            mBytesIn.addAndGet(read);
+            mReadBuffer.flip();
+            JSONObject frame;
+            while ((frame = WireProtocol.decode(mReadBuffer)) != null) {
+                mFramesIn.incrementAndGet();
+                onFrame(this, frame);
+            }
+            if (mReadBuffer.position() == 0 && mReadBuffer.limit() == mReadBuffer.capacity()) {
+                // A frame larger than the buffer: grow it, up to the largest frame.
+                ByteBuffer buffer = ByteBuffer.allocate(Math.min(mReadBuffer.capacity() * 2,
+                        WireProtocol.HEADER_SIZE + WireProtocol.MAX_FRAME_SIZE));
+                buffer.put(mReadBuffer);
+                mReadBuffer = buffer;
+            } else {
+                mReadBuffer.compact();
+            }
+        }
+
+        void send(ByteBuffer buffer) {
+            if (!mKey.isValid()) {
+                return;
+            }
+            mFramesOut.incrementAndGet();
+            mWriteQueue.addLast(buffer);
+            if (mWriteQueue.size() == 1) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    // Reported by the selector when the channel is next selected, unless the
+                    // write failed because the connection is already being closed.
+                    if (mKey.isValid()) {
+                        mKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    }
+                }
+            }
+        }
+
+        void flush() throws IOException {
+            while (!mWriteQueue.isEmpty()) {
+                ByteBuffer buffer = mWriteQueue.peekFirst();
+                mBytesOut.addAndGet(mChannel.write(buffer));
+                if (buffer.hasRemaining()) {
+                    // The socket buffer is full: wait until the channel is writable.
+                    mKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                mWriteQueue.removeFirst();
+            }
+            mKey.interestOps(SelectionKey.OP_READ);
+        }
+
+        void close() {
+            mKey.cancel();
+            try {
+                mChannel.close();
+            } catch (IOException e) {
+                // Already closed.
+            }
+        }
+    }
+}